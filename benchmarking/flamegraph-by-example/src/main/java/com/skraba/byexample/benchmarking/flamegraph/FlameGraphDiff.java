@@ -0,0 +1,208 @@
+package com.skraba.byexample.benchmarking.flamegraph;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two profiles of the same application to find where the time moved.
+ *
+ * <p>The two profiles usually have a different number of samples, so they are normalized by
+ * comparing the <i>fraction</i> of all samples in each frame. The differential flame graph has the
+ * shape of the second profile, and every frame is colored by how much its fraction of the samples
+ * (including the frames it called) changed: red if it grew, blue if it shrank, and grey if it
+ * stayed the same. Frames that only appear in the first profile aren't drawn.
+ *
+ * @link <a href="https://www.brendangregg.com/blog/2014-11-09/differential-flame-graphs.html">
+ *     Differential Flame Graphs</a>
+ */
+public class FlameGraphDiff {
+
+  private final StackTrie before;
+  private final StackTrie after;
+
+  /** For every node in the second profile, the change in its fraction of all samples. */
+  private final Map<StackTrie, Double> deltas = new IdentityHashMap<>();
+
+  /** The largest change for any node, used to scale the colors. */
+  private double maxDelta;
+
+  /**
+   * @param before The first profile.
+   * @param after The second profile.
+   */
+  public FlameGraphDiff(StackTrie before, StackTrie after) {
+    this.before = before;
+    this.after = after;
+    compare(after, before);
+  }
+
+  /** Finds the change for the node in the second profile and all of its children. */
+  private void compare(StackTrie a, StackTrie b) {
+    double delta = fraction(a.getTotal(), after) - (b == null ? 0 : fraction(b.getTotal(), before));
+    deltas.put(a, delta);
+    maxDelta = Math.max(maxDelta, Math.abs(delta));
+    for (StackTrie child : a.getChildren()) {
+      compare(child, b == null ? null : b.getChild(child.getName()));
+    }
+  }
+
+  /**
+   * @return the samples as a fraction of all of the samples in the profile.
+   */
+  private static double fraction(long samples, StackTrie root) {
+    return root.getTotal() == 0 ? 0 : (double) samples / root.getTotal();
+  }
+
+  /**
+   * @return the first profile.
+   */
+  public StackTrie getBefore() {
+    return before;
+  }
+
+  /**
+   * @return the second profile, which has the shape of the differential flame graph.
+   */
+  public StackTrie getAfter() {
+    return after;
+  }
+
+  /**
+   * @param node A node from the second profile.
+   * @return the change in its fraction of all samples since the first profile, from -1 to 1.
+   */
+  public double getDelta(StackTrie node) {
+    return deltas.getOrDefault(node, 0.0);
+  }
+
+  /**
+   * @param node A node from the second profile.
+   * @return a color from red (grew the most) to blue (shrank the most).
+   */
+  public String color(StackTrie node) {
+    double delta = getDelta(node);
+    if (maxDelta == 0 || Math.abs(delta) < 1e-9) {
+      return "rgb(220,220,220)";
+    }
+    int v = (int) Math.round(210 * (1 - Math.abs(delta) / maxDelta));
+    return delta > 0
+        ? String.format(Locale.ROOT, "rgb(255,%d,%d)", v, v)
+        : String.format(Locale.ROOT, "rgb(%d,%d,255)", v, v);
+  }
+
+  /**
+   * @param title The title of the flame graph.
+   * @param units The units of the values in the profiles, usually samples.
+   * @return a flame graph of the second profile colored by the changes.
+   */
+  public FlameGraphSvg toSvg(String title, String units) {
+    return new FlameGraphSvg(
+        title,
+        units,
+        this::color,
+        node -> String.format(Locale.ROOT, ", %+.2f%%", 100 * getDelta(node)));
+  }
+
+  /**
+   * Finds the frames where the most time was spent, compared to the first profile. The time in a
+   * frame only counts the samples where it was the leaf (the self time), summed over all of the
+   * stacks where the frame appears.
+   *
+   * @param top The maximum number of frames to return.
+   * @return the frames whose fraction of the self time increased, starting from the largest
+   *     increase.
+   */
+  public List<Frame> getRegressions(int top) {
+    Map<String, long[]> self = new HashMap<>();
+    addSelf(before, self, 0);
+    addSelf(after, self, 1);
+    List<Frame> frames = new ArrayList<>();
+    for (Map.Entry<String, long[]> e : self.entrySet()) {
+      Frame frame =
+          new Frame(
+              e.getKey(), fraction(e.getValue()[0], before), fraction(e.getValue()[1], after));
+      if (frame.getDelta() > 0) {
+        frames.add(frame);
+      }
+    }
+    frames.sort(
+        Comparator.comparingDouble(Frame::getDelta).reversed().thenComparing(Frame::getName));
+    return frames.subList(0, Math.min(top, frames.size()));
+  }
+
+  /** Sums the self samples of every frame in the tree into the given column. */
+  private static void addSelf(StackTrie node, Map<String, long[]> self, int column) {
+    for (StackTrie child : node.getChildren()) {
+      if (child.getSelf() > 0) {
+        self.computeIfAbsent(child.getName(), k -> new long[2])[column] += child.getSelf();
+      }
+      addSelf(child, self, column);
+    }
+  }
+
+  /**
+   * Prints the frames as a table.
+   *
+   * @param frames The frames to print, usually from {@link #getRegressions(int)}.
+   * @param out Where to print the table.
+   */
+  public static void printTable(List<Frame> frames, PrintStream out) {
+    out.printf(Locale.ROOT, "%9s %9s %9s  %s%n", "Before", "After", "Delta", "Frame");
+    for (Frame frame : frames) {
+      out.printf(
+          Locale.ROOT,
+          "%8.2f%% %8.2f%% %+8.2f%%  %s%n",
+          100 * frame.getBefore(),
+          100 * frame.getAfter(),
+          100 * frame.getDelta(),
+          frame.getName());
+    }
+  }
+
+  /** The self time spent in a frame in both profiles. */
+  public static class Frame {
+    private final String name;
+    private final double before;
+    private final double after;
+
+    public Frame(String name, double before, double after) {
+      this.name = name;
+      this.before = before;
+      this.after = after;
+    }
+
+    /**
+     * @return the name of the frame.
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return the self samples in the first profile as a fraction of all samples.
+     */
+    public double getBefore() {
+      return before;
+    }
+
+    /**
+     * @return the self samples in the second profile as a fraction of all samples.
+     */
+    public double getAfter() {
+      return after;
+    }
+
+    /**
+     * @return the change in the fraction of all samples.
+     */
+    public double getDelta() {
+      return after - before;
+    }
+  }
+}
@@ -0,0 +1,246 @@
+package com.skraba.byexample.benchmarking.flamegraph;
+
+import com.skraba.byexample.benchmarking.toprofile.ToProfileGo;
+import com.tinfoiled.docopt4s.shaded.docoptjava.Docopt;
+import com.tinfoiled.docopt4s.shaded.docoptjava.DocoptExitException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Records Java applications with Java Flight Recorder and draws flame graphs from the recordings,
+ * without any tools outside the JDK.
+ */
+public class FlameGraphGo {
+
+  public static final String VERSION = "0.0.1-SNAPSHOT";
+
+  public static final String DOC =
+      String.join(
+          "\n",
+          "Records and draws flame graphs.",
+          "",
+          "Usage:",
+          "  FlameGraphGo record [--jfr=FILE] [--settings=SETTINGS] [--threshold=TIME]",
+          "      [--main=CLASS] [--] [<args>...]",
+          "  FlameGraphGo collapse <jfr> [--out=FILE] [--view=VIEW]",
+          "  FlameGraphGo svg <input> [--out=FILE] [--title=TITLE] [--view=VIEW]",
+          "  FlameGraphGo diff <before> <after> [--out=FILE] [--title=TITLE]",
+          "      [--top=N] [--view=VIEW]",
+          "",
+          "Options:",
+          "  -h --help            Show this screen.",
+          "  --jfr=FILE           The recording to create [default: flamegraph.jfr]",
+          "  --settings=SETTINGS  The JFR settings, either default or profile",
+          "                       [default: profile]",
+          "  --threshold=TIME     Record blocking events that are longer than this",
+          "                       [default: 1ms]",
+          "  --main=CLASS         The application to run (ToProfileGo by default).",
+          "  --out=FILE           Write to a file instead of standard out.",
+          "  --title=TITLE        The title of the flame graph [default: Flame Graph]",
+          "  --top=N              The number of regressed frames to print",
+          "                       [default: 10]",
+          "  --view=VIEW          The stacks to read from a recording: cpu, wall",
+          "                       (blocked time) or lock (contention) [default: cpu]",
+          "",
+          "Commands:",
+          "   record    Run a Java application with Java Flight Recorder.",
+          "   collapse  Convert the stacks in a recording to collapsed stacks.",
+          "   svg       Draw the stacks in a recording (.jfr) or collapsed stack",
+          "             file as a flame graph.",
+          "   diff      Print the frames that regressed the most between two profiles,",
+          "             and draw the differential flame graph to a file if --out is",
+          "             set.");
+
+  /**
+   * Runs the tool. This does not handle any docopt exception automatically while parsing the
+   * command line.
+   *
+   * @param args command-line arguments as described in DOC .
+   */
+  public static void go(String... args)
+      throws DocoptExitException, InternalDocoptException, IOException, InterruptedException {
+    Map<String, Object> opts = new Docopt(DOC).withVersion(VERSION).withExit(false).parse(args);
+    final String out = (String) opts.get("--out");
+    final JfrStacks.View view = JfrStacks.View.of(String.valueOf(opts.get("--view")));
+
+    if (Boolean.parseBoolean(String.valueOf(opts.get("record")))) {
+      String main = (String) opts.get("--main");
+      @SuppressWarnings("unchecked")
+      List<String> appArgs = (List<String>) opts.get("<args>");
+      int exit =
+          record(
+              Paths.get(String.valueOf(opts.get("--jfr"))),
+              String.valueOf(opts.get("--settings")),
+              String.valueOf(opts.get("--threshold")),
+              main == null ? ToProfileGo.class.getName() : main,
+              appArgs);
+      if (exit != 0) {
+        throw new InternalDocoptException(
+            "The recorded application failed with exit code " + exit, null, DOC);
+      }
+    } else if (Boolean.parseBoolean(String.valueOf(opts.get("collapse")))) {
+      StackTrie stacks = JfrStacks.read(Paths.get(String.valueOf(opts.get("<jfr>"))), view);
+      try (Writer w = newWriter(out)) {
+        stacks.writeCollapsed(w);
+      }
+    } else if (Boolean.parseBoolean(String.valueOf(opts.get("svg")))) {
+      StackTrie stacks = read(Paths.get(String.valueOf(opts.get("<input>"))), view);
+      try (Writer w = newWriter(out)) {
+        new FlameGraphSvg(
+                String.valueOf(opts.get("--title")),
+                view.getUnits(),
+                FlameGraphSvg::hot,
+                node -> "")
+            .write(stacks, w);
+      }
+    } else if (Boolean.parseBoolean(String.valueOf(opts.get("diff")))) {
+      final int top = parseTop(String.valueOf(opts.get("--top")));
+      FlameGraphDiff diff =
+          new FlameGraphDiff(
+              read(Paths.get(String.valueOf(opts.get("<before>"))), view),
+              read(Paths.get(String.valueOf(opts.get("<after>"))), view));
+      FlameGraphDiff.printTable(diff.getRegressions(top), System.out);
+      if (out != null) {
+        try (Writer w = newWriter(out)) {
+          diff.toSvg(String.valueOf(opts.get("--title")), view.getUnits())
+              .write(diff.getAfter(), w);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param top The number of regressed frames from the command line.
+   * @return the number of frames.
+   * @throws InternalDocoptException if the number is negative or not an integer.
+   */
+  private static int parseTop(String top) {
+    try {
+      int parsed = Integer.parseInt(top);
+      if (parsed >= 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      throw new InternalDocoptException("Invalid number of frames: " + top, e, DOC);
+    }
+    throw new InternalDocoptException("Invalid number of frames: " + top, null, DOC);
+  }
+
+  /**
+   * Runs a Java application in a new JVM with the same classpath as this one, while recording it
+   * with Java Flight Recorder. The recording is written when the application exits.
+   *
+   * @param jfr The recording file to create.
+   * @param settings The name of the JFR settings to use: default or profile.
+   * @param threshold The minimum time for the events in the wall and lock views, such as 1ms. The
+   *     JFR settings usually only record events that are longer than 10 or 20ms.
+   * @param main The main class of the application.
+   * @param args The arguments to pass to the application.
+   * @return the exit code of the application.
+   */
+  public static int record(
+      Path jfr, String settings, String threshold, String main, List<String> args)
+      throws IOException, InterruptedException {
+    StringBuilder jfrOptions =
+        new StringBuilder("-XX:StartFlightRecording=filename=")
+            .append(jfr.toAbsolutePath())
+            .append(",settings=")
+            .append(settings)
+            .append(",dumponexit=true");
+    for (JfrStacks.View view : JfrStacks.View.values()) {
+      if (view != JfrStacks.View.CPU) {
+        for (String event : new TreeSet<>(view.getEvents())) {
+          jfrOptions.append(',').append(event).append("#threshold=").append(threshold);
+        }
+      }
+    }
+    List<String> cmd = new ArrayList<>();
+    cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    cmd.add(jfrOptions.toString());
+    cmd.add("-cp");
+    cmd.add(System.getProperty("java.class.path"));
+    cmd.add(main);
+    cmd.addAll(args);
+    return new ProcessBuilder(cmd).inheritIO().start().waitFor();
+  }
+
+  /**
+   * @param input Either a recording with a {@code .jfr} extension, or a collapsed stack file.
+   * @param view The stacks to read if the input is a recording.
+   * @return the stacks in the file.
+   */
+  public static StackTrie read(Path input, JfrStacks.View view) throws IOException {
+    if (input.getFileName().toString().endsWith(".jfr")) {
+      return JfrStacks.read(input, view);
+    }
+    return StackTrie.readCollapsed(input);
+  }
+
+  /**
+   * @param out The file to write, or null for standard out.
+   * @return a writer to the file, that doesn't close standard out.
+   */
+  private static Writer newWriter(String out) throws IOException {
+    if (out != null) {
+      return Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8);
+    }
+    return new OutputStreamWriter(System.out, StandardCharsets.UTF_8) {
+      @Override
+      public void close() throws IOException {
+        flush();
+      }
+    };
+  }
+
+  /** Main entry point to the application. */
+  public static void main(String[] args) {
+    // All of the command is executed in the go method, and this wraps DocOpt and exceptions for
+    // console feedback.
+    try {
+      go(args);
+    } catch (DocoptExitException ex) {
+      if (ex.getMessage() != null)
+        (ex.getExitCode() == 0 ? System.out : System.err).println(ex.getMessage());
+      System.exit(ex.getExitCode());
+    } catch (InternalDocoptException ex) {
+      System.out.println(ex.getDocopt());
+      if (ex.getMessage() != null) {
+        System.out.println();
+        System.out.println(ex.getMessage());
+      }
+      System.exit(1);
+    } catch (Exception ex) {
+      System.err.println(DOC);
+      System.err.println();
+      ex.printStackTrace();
+      System.exit(1);
+    }
+  }
+
+  /**
+   * {@link com.tinfoiled.docopt4s.shaded.docoptjava.DocoptExitException} constructors are
+   * protected.
+   */
+  public static class InternalDocoptException extends RuntimeException {
+
+    private final String docopt;
+
+    public InternalDocoptException(String message, Throwable cause, String docopt) {
+      super(message, cause);
+      this.docopt = docopt;
+    }
+
+    public String getDocopt() {
+      return docopt;
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package com.skraba.byexample.benchmarking.flamegraph;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Draws a {@link StackTrie} as a flame graph in a standalone SVG image.
+ *
+ * <p>The root frame is at the bottom, and every frame is drawn above the frame that called it. The
+ * width of a frame is proportional to the number of samples (or time) that passed through it, and
+ * frames that would be too narrow to see are left out. Hovering over a frame shows its name and
+ * sample count.
+ *
+ * @link <a href="https://www.brendangregg.com/flamegraphs.html">Flame Graphs</a>
+ */
+public class FlameGraphSvg {
+
+  /** The width of the image in pixels. */
+  public static final int WIDTH = 1200;
+
+  /** The height of every frame in pixels. */
+  public static final int FRAME_HEIGHT = 16;
+
+  /** The size of the text in pixels. */
+  public static final int FONT_SIZE = 12;
+
+  /** The space around the frames in pixels. */
+  private static final int MARGIN = 10;
+
+  /** The space above the frames for the title in pixels. */
+  private static final int TITLE_HEIGHT = 3 * FONT_SIZE;
+
+  /** Frames narrower than this in pixels aren't drawn. */
+  private static final double MIN_WIDTH = 0.1;
+
+  /** The approximate width of one character in a monospace font, relative to the font size. */
+  private static final double CHAR_WIDTH = 0.6;
+
+  private final String title;
+  private final String units;
+  private final Function<StackTrie, String> colors;
+  private final Function<StackTrie, String> details;
+
+  public FlameGraphSvg(String title) {
+    this(title, FlameGraphSvg::hot);
+  }
+
+  public FlameGraphSvg(String title, Function<StackTrie, String> colors) {
+    this(title, "samples", colors, node -> "");
+  }
+
+  /**
+   * @param title The title shown at the top of the image.
+   * @param units The units of the values in the stacks, usually samples.
+   * @param colors The fill color of every frame, in any format that SVG understands.
+   * @param details Any extra text to show after the sample count when hovering over a frame.
+   */
+  public FlameGraphSvg(
+      String title,
+      String units,
+      Function<StackTrie, String> colors,
+      Function<StackTrie, String> details) {
+    this.title = title;
+    this.units = units;
+    this.colors = colors;
+    this.details = details;
+  }
+
+  /**
+   * The classic flame graph colors, in shades of red, orange and yellow that depend on the name of
+   * the frame, so that the same frame always has the same color.
+   *
+   * @return the fill color of the frame.
+   */
+  public static String hot(StackTrie node) {
+    int hash = node.getName().hashCode();
+    int r = 205 + Math.floorMod(hash, 50);
+    int g = Math.floorMod(hash >> 8, 230);
+    int b = Math.floorMod(hash >> 16, 55);
+    return String.format(Locale.ROOT, "rgb(%d,%d,%d)", r, g, b);
+  }
+
+  /**
+   * @param root The samples to draw.
+   * @return the SVG image as text.
+   */
+  public String render(StackTrie root) {
+    StringWriter out = new StringWriter();
+    try {
+      write(root, out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toString();
+  }
+
+  /**
+   * Writes the SVG image.
+   *
+   * @param root The samples to draw.
+   * @param out The destination of the image.
+   * @throws IOException if the image couldn't be written.
+   */
+  public void write(StackTrie root, Writer out) throws IOException {
+    int depth = root.getDepth();
+    int height = TITLE_HEIGHT + (depth + 1) * FRAME_HEIGHT + 2 * MARGIN;
+    out.write(
+        String.format(
+            Locale.ROOT,
+            "<?xml version=\"1.0\" standalone=\"no\"?>\n"
+                + "<svg version=\"1.1\" width=\"%d\" height=\"%d\" viewBox=\"0 0 %d %d\""
+                + " xmlns=\"http://www.w3.org/2000/svg\">\n"
+                + "<style>text { font-family: monospace; font-size: %dpx; fill: black; }"
+                + " .title { font-size: %dpx; text-anchor: middle; }</style>\n"
+                + "<rect x=\"0\" y=\"0\" width=\"100%%\" height=\"100%%\" fill=\"white\"/>\n"
+                + "<text class=\"title\" x=\"%d\" y=\"%d\">%s</text>\n",
+            WIDTH,
+            height,
+            WIDTH,
+            height,
+            FONT_SIZE,
+            FONT_SIZE + 4,
+            WIDTH / 2,
+            2 * FONT_SIZE,
+            escape(title)));
+    if (root.getTotal() > 0) {
+      double scale = (WIDTH - 2.0 * MARGIN) / root.getTotal();
+      writeFrame(root, root.getTotal(), MARGIN, height - MARGIN - FRAME_HEIGHT, scale, out);
+    }
+    out.write("</svg>\n");
+    out.flush();
+  }
+
+  /** Writes one frame and all of the frames that it called above it. */
+  private void writeFrame(StackTrie node, long all, double x, int y, double scale, Writer out)
+      throws IOException {
+    double width = node.getTotal() * scale;
+    if (width < MIN_WIDTH) {
+      return;
+    }
+    out.write(
+        String.format(
+            Locale.ROOT,
+            "<g><title>%s (%,d %s, %.2f%%%s)</title>"
+                + "<rect x=\"%.1f\" y=\"%d\" width=\"%.1f\" height=\"%d\" fill=\"%s\" rx=\"2\"/>",
+            escape(node.getName()),
+            node.getTotal(),
+            escape(units),
+            100.0 * node.getTotal() / all,
+            escape(details.apply(node)),
+            x,
+            y,
+            width,
+            FRAME_HEIGHT - 1,
+            colors.apply(node)));
+    String label = getLabel(node.getName(), width);
+    if (!label.isEmpty()) {
+      out.write(
+          String.format(
+              Locale.ROOT,
+              "<text x=\"%.1f\" y=\"%d\">%s</text>",
+              x + 3,
+              y + FRAME_HEIGHT - 4,
+              escape(label)));
+    }
+    out.write("</g>\n");
+    for (StackTrie child : node.getChildren()) {
+      writeFrame(child, all, x, y - FRAME_HEIGHT, scale, out);
+      x += child.getTotal() * scale;
+    }
+  }
+
+  /**
+   * @param name The name of a frame.
+   * @param width The width of the frame in pixels.
+   * @return as much of the name that fits in the frame, or nothing if it's too narrow.
+   */
+  static String getLabel(String name, double width) {
+    int fits = (int) ((width - 6) / (FONT_SIZE * CHAR_WIDTH));
+    if (fits >= name.length()) {
+      return name;
+    }
+    return fits < 3 ? "" : name.substring(0, fits - 2) + "..";
+  }
+
+  /**
+   * @return the text with the XML special characters escaped.
+   */
+  static String escape(String text) {
+    return text.replace("&", "&amp;")
+        .replace("<", "&lt;")
+        .replace(">", "&gt;")
+        .replace("\"", "&quot;");
+  }
+}
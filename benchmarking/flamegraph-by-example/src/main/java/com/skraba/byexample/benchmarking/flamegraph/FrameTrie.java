@@ -0,0 +1,211 @@
+package com.skraba.byexample.benchmarking.flamegraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact tree of stack samples, meant to be updated continuously by a profiler with as little
+ * overhead as possible.
+ *
+ * <p>Unlike a {@link StackTrie}, there is no object for each node. Every distinct frame (class and
+ * method) is given an integer id, and the nodes are stored in parallel arrays, where the child of
+ * any node for a frame is found in a single open addressing hash table keyed by both the parent
+ * node and the frame. Adding a stack that has already been seen doesn't allocate any memory.
+ *
+ * <p>The number of nodes is limited, and any sample that would need more nodes is dropped, so the
+ * memory used by a long-running profiler stays bounded.
+ */
+public class FrameTrie {
+
+  /** The default maximum number of nodes in the tree. */
+  public static final int DEFAULT_MAX_NODES = 1 << 20;
+
+  /** The index of the root node. */
+  private static final int ROOT = 0;
+
+  /** An empty slot in the hash table. */
+  private static final long EMPTY = -1L;
+
+  private final int maxNodes;
+
+  /** For every class name, the id of each of its methods. */
+  private final Map<String, Map<String, Integer>> frameIds = new HashMap<>();
+
+  /** For every frame id, the name of the frame. */
+  private final List<String> frameNames = new ArrayList<>();
+
+  /** The number of nodes in the tree, including the root. */
+  private int nodes = 1;
+
+  /** For every node, the index of its parent node. */
+  private int[] parents = new int[1024];
+
+  /** For every node, the id of its frame. */
+  private int[] frames = new int[1024];
+
+  /** For every node, the number of samples where it was the leaf. */
+  private long[] self = new long[1024];
+
+  /** The hash table keys, as the parent node index and frame id, or EMPTY. */
+  private long[] keys;
+
+  /** The hash table values, as the child node index. */
+  private int[] children;
+
+  private long samples;
+  private long dropped;
+
+  public FrameTrie() {
+    this(DEFAULT_MAX_NODES);
+  }
+
+  /**
+   * @param maxNodes The maximum number of nodes in the tree.
+   */
+  public FrameTrie(int maxNodes) {
+    this.maxNodes = maxNodes;
+    keys = new long[2048];
+    Arrays.fill(keys, EMPTY);
+    children = new int[keys.length];
+  }
+
+  /**
+   * @return the id of the frame, assigning a new one if the frame has never been seen.
+   */
+  public synchronized int getFrameId(String className, String methodName) {
+    Map<String, Integer> methods = frameIds.computeIfAbsent(className, c -> new HashMap<>());
+    Integer id = methods.get(methodName);
+    if (id == null) {
+      id = frameNames.size();
+      frameNames.add(className + "." + methodName);
+      methods.put(methodName, id);
+    }
+    return id;
+  }
+
+  /**
+   * Adds a sampled stack trace from a thread.
+   *
+   * @param stack The stack trace, starting from the leaf like {@link Thread#getStackTrace()}.
+   * @return whether the sample was added, or false if it was empty or dropped because the tree is
+   *     full.
+   */
+  public synchronized boolean add(StackTraceElement[] stack) {
+    if (stack.length == 0) {
+      return false;
+    }
+    int node = ROOT;
+    for (int i = stack.length - 1; i >= 0; i--) {
+      node = getOrCreateChild(node, getFrameId(stack[i].getClassName(), stack[i].getMethodName()));
+      if (node < 0) {
+        dropped++;
+        return false;
+      }
+    }
+    self[node]++;
+    samples++;
+    return true;
+  }
+
+  /**
+   * @return the index of the child node, or -1 if it doesn't exist and the tree is full.
+   */
+  private int getOrCreateChild(int parent, int frame) {
+    long key = ((long) parent << 32) | frame;
+    int mask = keys.length - 1;
+    int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        return children[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    if (nodes >= maxNodes) {
+      return -1;
+    }
+    int child = nodes++;
+    if (child == parents.length) {
+      parents = Arrays.copyOf(parents, child * 2);
+      frames = Arrays.copyOf(frames, child * 2);
+      self = Arrays.copyOf(self, child * 2);
+    }
+    parents[child] = parent;
+    frames[child] = frame;
+    keys[slot] = key;
+    children[slot] = child;
+    // Keep the hash table at most half full.
+    if (nodes * 2 > keys.length) {
+      rehash();
+    }
+    return child;
+  }
+
+  /** Doubles the size of the hash table. */
+  private void rehash() {
+    long[] oldKeys = keys;
+    int[] oldChildren = children;
+    keys = new long[oldKeys.length * 2];
+    Arrays.fill(keys, EMPTY);
+    children = new int[keys.length];
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int slot = Long.hashCode(oldKeys[i] * 0x9E3779B97F4A7C15L) & mask;
+        while (keys[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        children[slot] = oldChildren[i];
+      }
+    }
+  }
+
+  /**
+   * @return the number of nodes in the tree, including the root.
+   */
+  public synchronized int getNodes() {
+    return nodes;
+  }
+
+  /**
+   * @return the number of samples that were added.
+   */
+  public synchronized long getSamples() {
+    return samples;
+  }
+
+  /**
+   * @return the number of samples that were dropped because the tree was full.
+   */
+  public synchronized long getDropped() {
+    return dropped;
+  }
+
+  /**
+   * @return a copy of all of the samples in this tree.
+   */
+  public synchronized StackTrie toStackTrie() {
+    StackTrie root = new StackTrie();
+    String[] stack = new String[64];
+    for (int node = 1; node < nodes; node++) {
+      if (self[node] > 0) {
+        int depth = 0;
+        for (int n = node; n != ROOT; n = parents[n]) {
+          if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+          }
+          stack[depth++] = frameNames.get(frames[n]);
+        }
+        List<String> path = Arrays.asList(Arrays.copyOf(stack, depth));
+        // The path was built from the leaf.
+        Collections.reverse(path);
+        root.add(path, self[node]);
+      }
+    }
+    return root;
+  }
+}
@@ -0,0 +1,164 @@
+package com.skraba.byexample.benchmarking.flamegraph;
+
+import com.skraba.byexample.benchmarking.flamegraph.FlameGraphGo.InternalDocoptException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Reads the stack traces from a Java Flight Recorder file into a {@link StackTrie}, using only the
+ * {@code jdk.jfr.consumer} API in the JDK.
+ */
+public class JfrStacks {
+
+  /** The events that the JVM records when it samples the threads running Java code. */
+  public static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+
+  /** The frame added to the root of a stack that was too deep to be recorded completely. */
+  public static final String TRUNCATED = "[truncated]";
+
+  /** The different ways to look at the stacks in a recording. */
+  public enum View {
+    /** Where the threads were running Java code, by the number of samples. */
+    CPU("samples", false, EXECUTION_SAMPLE),
+    /**
+     * Where the threads were blocked instead of running, by the time spent in microseconds. This
+     * includes parking (most of java.util.concurrent), sleeping and waiting on a monitor (such as
+     * {@link Process#waitFor()}).
+     */
+    WALL("µs", true, "jdk.ThreadPark", "jdk.ThreadSleep", "jdk.JavaMonitorWait"),
+    /**
+     * Where the threads were waiting to enter a synchronized block, by the time in microseconds.
+     */
+    LOCK("µs", true, "jdk.JavaMonitorEnter");
+
+    private final String units;
+    private final boolean byDuration;
+    private final Set<String> events;
+
+    View(String units, boolean byDuration, String... events) {
+      this.units = units;
+      this.byDuration = byDuration;
+      this.events = Set.of(events);
+    }
+
+    /**
+     * @return the units of the values in the stacks.
+     */
+    public String getUnits() {
+      return units;
+    }
+
+    /**
+     * @return the names of the JFR events in this view.
+     */
+    public Set<String> getEvents() {
+      return events;
+    }
+
+    /**
+     * @param name The name of the view from the command line, case-insensitive.
+     * @return the view.
+     * @throws InternalDocoptException if the view doesn't exist.
+     */
+    public static View of(String name) {
+      try {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new InternalDocoptException("Unknown view: " + name, e, FlameGraphGo.DOC);
+      }
+    }
+  }
+
+  /**
+   * Reads all of the CPU samples in a recording.
+   *
+   * @param jfr The recording file.
+   * @return the stacks in the recording, with one sample per event.
+   * @throws IOException if the file couldn't be read.
+   */
+  public static StackTrie read(Path jfr) throws IOException {
+    return read(jfr, View.CPU);
+  }
+
+  /**
+   * Reads all of the stacks for a view of the recording.
+   *
+   * @param jfr The recording file.
+   * @param view The events to read, and how to count them.
+   * @return the stacks in the recording.
+   * @throws IOException if the file couldn't be read.
+   */
+  public static StackTrie read(Path jfr, View view) throws IOException {
+    return read(jfr, view.events, view.byDuration);
+  }
+
+  /**
+   * Reads all of the stacks of the given events in a recording.
+   *
+   * @param jfr The recording file.
+   * @param events The names of the events to read.
+   * @param byDuration If true, every event counts for its duration in microseconds, otherwise every
+   *     event counts as one sample.
+   * @return the stacks in the recording.
+   * @throws IOException if the file couldn't be read.
+   */
+  public static StackTrie read(Path jfr, Set<String> events, boolean byDuration)
+      throws IOException {
+    StackTrie root = new StackTrie();
+    try (RecordingFile in = new RecordingFile(jfr)) {
+      while (in.hasMoreEvents()) {
+        RecordedEvent event = in.readEvent();
+        if (events.contains(event.getEventType().getName())) {
+          List<String> frames = getFrames(event);
+          if (frames != null) {
+            root.add(frames, byDuration ? Math.max(1, event.getDuration().toNanos() / 1000) : 1);
+          }
+        }
+      }
+    }
+    return root;
+  }
+
+  /**
+   * @param event An event from the recording.
+   * @return the names of the frames in the stack trace of the event, starting from the root, or
+   *     null if the event doesn't have a stack trace.
+   */
+  static List<String> getFrames(RecordedEvent event) {
+    RecordedStackTrace stack = event.getStackTrace();
+    if (stack == null) {
+      return null;
+    }
+    List<String> frames = new ArrayList<>(stack.getFrames().size() + 1);
+    for (RecordedFrame frame : stack.getFrames()) {
+      frames.add(getName(frame));
+    }
+    if (stack.isTruncated()) {
+      frames.add(TRUNCATED);
+    }
+    // JFR starts the stack at the leaf.
+    Collections.reverse(frames);
+    return frames;
+  }
+
+  /**
+   * @return the name of the frame as the class and method name.
+   */
+  static String getName(RecordedFrame frame) {
+    RecordedMethod method = frame.getMethod();
+    if (method == null) {
+      return "[unknown]";
+    }
+    return method.getType().getName() + "." + method.getName();
+  }
+}
@@ -0,0 +1,121 @@
+package com.skraba.byexample.benchmarking.flamegraph;
+
+import java.io.IOException;
+import java.lang.instrument.Instrumentation;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A java agent that starts a {@link SamplingProfiler} in the JVM, configured by comma-separated
+ * options:
+ *
+ * <pre>
+ * java -javaagent:flamegraph-by-example.jar=interval=10,dump=30,file=/tmp/app.collapsed ...
+ * </pre>
+ *
+ * <ul>
+ *   <li>{@code interval}: The time between samples in milliseconds (default 10).
+ *   <li>{@code dump}: The time between writing the file in seconds (default 10).
+ *   <li>{@code file}: The collapsed stack file to write (default flamegraph-PID.collapsed).
+ *   <li>{@code nodes}: The maximum number of nodes to keep in memory (default 1048576).
+ * </ul>
+ *
+ * The file is also written when the JVM shuts down.
+ */
+public class SamplingAgent {
+
+  /** All of the agent options. */
+  private static final Set<String> OPTIONS = Set.of("interval", "dump", "file", "nodes");
+
+  /** Called when the agent is added to the command line. */
+  public static void premain(String args, Instrumentation inst) {
+    start(args);
+  }
+
+  /** Called when the agent is attached to a running JVM. */
+  public static void agentmain(String args, Instrumentation inst) {
+    start(args);
+  }
+
+  /**
+   * Starts the profiler, and writes the collapsed stack file on shutdown.
+   *
+   * @param args The agent options.
+   * @return the running profiler.
+   */
+  static SamplingProfiler start(String args) {
+    SamplingProfiler profiler = create(args);
+    profiler.start();
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread(
+                () -> {
+                  try {
+                    profiler.stop();
+                  } catch (IOException e) {
+                    System.err.println("Unable to write " + profiler.getOut() + ": " + e);
+                  }
+                }));
+    System.err.println("Sampling stacks to " + profiler.getOut().toAbsolutePath());
+    return profiler;
+  }
+
+  /**
+   * @param args The agent options.
+   * @return a profiler configured by the options, not yet started.
+   * @throws IllegalArgumentException if any of the options are invalid.
+   */
+  static SamplingProfiler create(String args) {
+    Map<String, String> opts = new HashMap<>();
+    if (args != null && !args.isBlank()) {
+      for (String opt : args.split(",")) {
+        int eq = opt.indexOf('=');
+        if (eq < 0) {
+          throw new IllegalArgumentException("Expected key=value in agent option: " + opt);
+        }
+        String key = opt.substring(0, eq).strip();
+        if (!OPTIONS.contains(key)) {
+          throw new IllegalArgumentException("Unknown agent option: " + key);
+        }
+        opts.put(key, opt.substring(eq + 1).strip());
+      }
+    }
+    Path file =
+        Paths.get(
+            opts.getOrDefault(
+                "file", "flamegraph-" + ProcessHandle.current().pid() + ".collapsed"));
+    return new SamplingProfiler(
+        Duration.ofMillis(getPositive(opts, "interval", 10)),
+        Duration.ofSeconds(getPositive(opts, "dump", 10)),
+        file,
+        (int) Math.min(Integer.MAX_VALUE, getPositive(opts, "nodes", FrameTrie.DEFAULT_MAX_NODES)));
+  }
+
+  /**
+   * @param opts The agent options.
+   * @param key The option to get.
+   * @param defaultValue The value if the option isn't set.
+   * @return the value of the option.
+   * @throws IllegalArgumentException if the option isn't a positive number.
+   */
+  private static long getPositive(Map<String, String> opts, String key, long defaultValue) {
+    String value = opts.get(key);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      long parsed = Long.parseLong(value);
+      if (parsed > 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      // Fall through to the same message.
+    }
+    throw new IllegalArgumentException(
+        "Expected a positive number for agent option " + key + ": " + value);
+  }
+}
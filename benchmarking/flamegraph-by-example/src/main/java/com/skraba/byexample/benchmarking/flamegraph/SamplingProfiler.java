@@ -0,0 +1,145 @@
+package com.skraba.byexample.benchmarking.flamegraph;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Samples the stacks of all of the threads in this JVM on a daemon thread, and periodically writes
+ * them to a collapsed stack file.
+ *
+ * <p>The samples are aggregated in a {@link FrameTrie} for the whole life of the profiler, so the
+ * file always contains all of the samples so far. It is replaced atomically, so it can be read at
+ * any time. If the file can't be written, the error is printed and the profiler keeps sampling.
+ */
+public class SamplingProfiler implements Runnable {
+
+  /** The name of the sampling thread. */
+  public static final String THREAD_NAME = "flamegraph-sampler";
+
+  private final FrameTrie trie;
+  private final long intervalNanos;
+  private final long dumpNanos;
+  private final Path out;
+
+  private volatile boolean running;
+  private Thread thread;
+
+  /**
+   * @param interval The time between samples.
+   * @param dumpInterval The time between writing the file.
+   * @param out The collapsed stack file to write.
+   * @param maxNodes The maximum number of nodes in the tree of samples.
+   */
+  public SamplingProfiler(Duration interval, Duration dumpInterval, Path out, int maxNodes) {
+    this.trie = new FrameTrie(maxNodes);
+    this.intervalNanos = interval.toNanos();
+    this.dumpNanos = dumpInterval.toNanos();
+    this.out = out;
+  }
+
+  /**
+   * @return the samples taken so far.
+   */
+  public FrameTrie getTrie() {
+    return trie;
+  }
+
+  /**
+   * @return the collapsed stack file.
+   */
+  public Path getOut() {
+    return out;
+  }
+
+  /** Starts sampling on a new daemon thread. */
+  public synchronized void start() {
+    if (thread == null) {
+      running = true;
+      thread = new Thread(this, THREAD_NAME);
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  /**
+   * Stops sampling, and writes the file one last time.
+   *
+   * @throws IOException if the file couldn't be written.
+   */
+  public synchronized void stop() throws IOException {
+    if (thread != null) {
+      running = false;
+      // Only wake the sampler if it's waiting, since an interrupt while writing the file would
+      // close it.
+      LockSupport.unpark(thread);
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      thread = null;
+      dump();
+    }
+  }
+
+  @Override
+  public void run() {
+    long nextSample = System.nanoTime();
+    long nextDump = nextSample + dumpNanos;
+    while (running) {
+      nextSample += intervalNanos;
+      long wait = nextSample - System.nanoTime();
+      if (wait <= 0) {
+        // Skip any samples that were missed instead of trying to catch up.
+        nextSample = System.nanoTime();
+      }
+      // Parking can return early, either when stopped or spuriously.
+      while (running && wait > 0) {
+        LockSupport.parkNanos(this, wait);
+        wait = nextSample - System.nanoTime();
+      }
+      if (!running) {
+        break;
+      }
+      sample();
+      if (nextSample - nextDump >= 0) {
+        nextDump += dumpNanos;
+        try {
+          dump();
+        } catch (IOException e) {
+          System.err.println("Unable to write " + out + ": " + e);
+        }
+      }
+    }
+  }
+
+  /** Takes one sample of every thread except the sampling thread. */
+  public void sample() {
+    Thread self = Thread.currentThread();
+    for (Map.Entry<Thread, StackTraceElement[]> e : Thread.getAllStackTraces().entrySet()) {
+      if (e.getKey() != self) {
+        trie.add(e.getValue());
+      }
+    }
+  }
+
+  /**
+   * Replaces the collapsed stack file with all of the samples so far.
+   *
+   * @throws IOException if the file couldn't be written.
+   */
+  public void dump() throws IOException {
+    Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+    try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+      trie.toStackTrie().writeCollapsed(w);
+    }
+    Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -0,0 +1,202 @@
+package com.skraba.byexample.benchmarking.flamegraph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates stack samples into a tree, where every node is a frame that counts the samples that
+ * passed through it.
+ *
+ * <p>This is the same information as the <i>collapsed</i> (or <i>folded</i>) stack format used by
+ * the standard flame graph tools, where every line is a stack from the root frame to the leaf frame
+ * separated by semicolons, followed by a space and the number of samples:
+ *
+ * <pre>
+ * com.example.Main.main;com.example.Main.run;java.lang.Thread.sleep 12
+ * </pre>
+ *
+ * The children are kept in alphabetical order, which is how flame graphs are usually drawn.
+ *
+ * @link <a href="https://github.com/brendangregg/FlameGraph#2-fold-stacks">Fold stacks</a>
+ */
+public class StackTrie {
+
+  /** The name of the root node, which isn't a frame in any of the stacks. */
+  public static final String ROOT = "all";
+
+  private final String name;
+  private final Map<String, StackTrie> children = new TreeMap<>();
+
+  /** The number of samples where this frame was the leaf. */
+  private long self;
+
+  /** The number of samples that passed through this frame. */
+  private long total;
+
+  public StackTrie() {
+    this(ROOT);
+  }
+
+  public StackTrie(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Adds a sampled stack to the tree.
+   *
+   * @param frames The frames in the stack, starting from the root.
+   * @param samples The number of samples (or the weight) to add.
+   * @return this for chaining.
+   */
+  public StackTrie add(List<String> frames, long samples) {
+    StackTrie node = this;
+    node.total += samples;
+    for (String frame : frames) {
+      node = node.children.computeIfAbsent(frame, StackTrie::new);
+      node.total += samples;
+    }
+    node.self += samples;
+    return this;
+  }
+
+  /**
+   * Adds all of the samples from another tree to this one.
+   *
+   * @param other The tree to add, which is not modified.
+   * @return this for chaining.
+   */
+  public StackTrie addAll(StackTrie other) {
+    total += other.total;
+    self += other.self;
+    for (StackTrie child : other.children.values()) {
+      children.computeIfAbsent(child.name, StackTrie::new).addAll(child);
+    }
+    return this;
+  }
+
+  /**
+   * @return the name of the frame.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the number of samples where this frame was the leaf.
+   */
+  public long getSelf() {
+    return self;
+  }
+
+  /**
+   * @return the number of samples that passed through this frame.
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * @return the frames called from this one in alphabetical order.
+   */
+  public Collection<StackTrie> getChildren() {
+    return children.values();
+  }
+
+  /**
+   * @return the frame called from this one with the given name, or null if it was never sampled.
+   */
+  public StackTrie getChild(String name) {
+    return children.get(name);
+  }
+
+  /**
+   * @return the number of frames in the deepest stack, not counting this node.
+   */
+  public int getDepth() {
+    int depth = 0;
+    for (StackTrie child : children.values()) {
+      depth = Math.max(depth, child.getDepth() + 1);
+    }
+    return depth;
+  }
+
+  /**
+   * Writes the tree in the collapsed stack format, one line for every stack that was a leaf in a
+   * sample. The root node is not included in the stacks.
+   *
+   * @param out The destination of the text.
+   * @throws IOException if the text couldn't be written.
+   */
+  public void writeCollapsed(Writer out) throws IOException {
+    Deque<String> stack = new ArrayDeque<>();
+    for (StackTrie child : children.values()) {
+      child.writeCollapsed(out, stack);
+    }
+    out.flush();
+  }
+
+  private void writeCollapsed(Writer out, Deque<String> stack) throws IOException {
+    stack.addLast(name);
+    if (self > 0) {
+      out.write(String.join(";", stack));
+      out.write(" ");
+      out.write(Long.toString(self));
+      out.write("\n");
+    }
+    for (StackTrie child : children.values()) {
+      child.writeCollapsed(out, stack);
+    }
+    stack.removeLast();
+  }
+
+  /**
+   * Reads stacks in the collapsed stack format. Blank lines are ignored.
+   *
+   * @param in The source of the text.
+   * @return a new tree containing the stacks.
+   * @throws IOException if the text couldn't be read, or isn't in the collapsed stack format.
+   */
+  public static StackTrie readCollapsed(Reader in) throws IOException {
+    StackTrie root = new StackTrie();
+    BufferedReader reader =
+        in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+    String line;
+    while ((line = reader.readLine()) != null) {
+      line = line.strip();
+      if (line.isEmpty()) {
+        continue;
+      }
+      int space = line.lastIndexOf(' ');
+      try {
+        long samples = Long.parseLong(line.substring(space + 1));
+        root.add(Arrays.asList(line.substring(0, Math.max(space, 0)).split(";")), samples);
+      } catch (NumberFormatException e) {
+        throw new IOException("Not a collapsed stack: " + line, e);
+      }
+    }
+    return root;
+  }
+
+  /**
+   * @param file A text file in the collapsed stack format.
+   * @return a new tree containing the stacks.
+   * @throws IOException if the file couldn't be read, or isn't in the collapsed stack format.
+   */
+  public static StackTrie readCollapsed(Path file) throws IOException {
+    try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return readCollapsed(in);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.skraba.byexample.benchmarking.flamegraph;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link FlameGraphDiff}. */
+public class FlameGraphDiffTest {
+
+  /** Half of the time is spent in a, and the other half in b. */
+  private static final String BEFORE = "main;a 50\nmain;b;x 30\nmain;b;y 20\n";
+
+  /** Twice as many samples, but now 3/4 of the time is spent in b.x. */
+  private static final String AFTER = "main;a 50\nmain;b;x 150\nmain;c 0\n";
+
+  private static FlameGraphDiff diff() throws IOException {
+    return new FlameGraphDiff(
+        StackTrie.readCollapsed(new StringReader(BEFORE)),
+        StackTrie.readCollapsed(new StringReader(AFTER)));
+  }
+
+  @Test
+  public void testDeltas() throws IOException {
+    FlameGraphDiff diff = diff();
+    StackTrie main = diff.getAfter().getChild("main");
+    assertThat(diff.getDelta(diff.getAfter()), closeTo(0, 1e-9));
+    assertThat(diff.getDelta(main), closeTo(0, 1e-9));
+    assertThat(diff.getDelta(main.getChild("a")), closeTo(-0.25, 1e-9));
+    assertThat(diff.getDelta(main.getChild("b")), closeTo(0.25, 1e-9));
+    assertThat(diff.getDelta(main.getChild("b").getChild("x")), closeTo(0.45, 1e-9));
+    // Only in the second profile.
+    assertThat(diff.getDelta(main.getChild("c")), closeTo(0, 1e-9));
+    // Not in the second profile.
+    assertThat(diff.getDelta(diff.getBefore().getChild("main").getChild("b")), is(0.0));
+
+    assertThat(diff.color(main), is("rgb(220,220,220)"));
+    assertThat(diff.color(main.getChild("b").getChild("x")), is("rgb(255,0,0)"));
+    assertThat(diff.color(main.getChild("b")), is("rgb(255,93,93)"));
+    assertThat(diff.color(main.getChild("a")), is("rgb(93,93,255)"));
+  }
+
+  @Test
+  public void testSvg() throws IOException {
+    FlameGraphDiff diff = diff();
+    String svg = diff.toSvg("Diff", "samples").render(diff.getAfter());
+    assertThat(svg, containsString(">Diff</text>"));
+    assertThat(svg, containsString("<title>x (150 samples, 75.00%, +45.00%)</title>"));
+    assertThat(svg, containsString("<title>a (50 samples, 25.00%, -25.00%)</title>"));
+    assertThat(svg, containsString("fill=\"rgb(255,0,0)\""));
+    assertThat(svg, not(containsString("<title>y ")));
+  }
+
+  @Test
+  public void testRegressions() throws IOException {
+    FlameGraphDiff diff = diff();
+    List<FlameGraphDiff.Frame> frames = diff.getRegressions(10);
+    assertThat(frames, hasSize(1));
+    assertThat(frames.get(0).getName(), is("x"));
+    assertThat(frames.get(0).getBefore(), closeTo(0.30, 1e-9));
+    assertThat(frames.get(0).getAfter(), closeTo(0.75, 1e-9));
+    assertThat(frames.get(0).getDelta(), closeTo(0.45, 1e-9));
+    assertThat(diff.getRegressions(0), empty());
+
+    // The same frame in different stacks is added together.
+    diff =
+        new FlameGraphDiff(
+            StackTrie.readCollapsed(new StringReader("main;a;x 1\nmain;b 9")),
+            StackTrie.readCollapsed(new StringReader("main;a;x 1\nmain;b;x 1\nmain;c 3\nb 5")));
+    frames = diff.getRegressions(10);
+    assertThat(frames, hasSize(2));
+    assertThat(frames.get(0).getName(), is("c"));
+    assertThat(frames.get(1).getName(), is("x"));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    FlameGraphDiff.printTable(frames, new PrintStream(out, true, StandardCharsets.UTF_8));
+    assertThat(
+        out.toString(StandardCharsets.UTF_8),
+        is(
+            "   Before     After     Delta  Frame\n"
+                + "    0.00%    30.00%   +30.00%  c\n"
+                + "   10.00%    20.00%   +10.00%  x\n"));
+  }
+}
@@ -0,0 +1,158 @@
+package com.skraba.byexample.benchmarking.flamegraph;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.skraba.byexample.benchmarking.toprofile.ToProfileGo;
+import com.tinfoiled.docopt4s.shaded.docoptjava.DocoptExitException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link FlameGraphGo}. */
+public class FlameGraphGoTest {
+
+  @Test
+  public void testReadability() {
+    for (String line : FlameGraphGo.DOC.split("\n")) {
+      assertThat("Check DOC line length: " + line, line.length(), lessThan(80));
+    }
+  }
+
+  @Test
+  public void testBasicExceptions() {
+    // --version and --help don't run the tool but drop out with "successful" exit
+    DocoptExitException ex =
+        assertThrows(DocoptExitException.class, () -> FlameGraphGo.go("--version"));
+    assertThat(ex.getExitCode(), is(0));
+    assertThat(ex.getMessage(), is(FlameGraphGo.VERSION));
+    ex = assertThrows(DocoptExitException.class, () -> FlameGraphGo.go("--help"));
+    assertThat(ex.getExitCode(), is(0));
+    assertThat(ex.getMessage(), is(FlameGraphGo.DOC));
+
+    // Unknown arguments are failures.
+    ex = assertThrows(DocoptExitException.class, () -> FlameGraphGo.go("--garbage"));
+    assertThat(ex.getExitCode(), is(1));
+    assertThat(ex.getMessage(), nullValue());
+    ex = assertThrows(DocoptExitException.class, () -> FlameGraphGo.go("svg"));
+    assertThat(ex.getExitCode(), is(1));
+    assertThat(ex.getMessage(), nullValue());
+  }
+
+  @Test
+  public void testRecordCollapseAndSvg(@TempDir Path tmp) throws Exception {
+    Path jfr = tmp.resolve("sieve.jfr");
+    FlameGraphGo.go(
+        "record", "--jfr=" + jfr, "--", "sieve", "20000000", "--super", "--happy", "--count");
+    assertThat(Files.exists(jfr), is(true));
+
+    // The recording has samples from the sieve.
+    StackTrie stacks = JfrStacks.read(jfr);
+    assertThat(stacks.getTotal(), greaterThan(0L));
+    Path collapsed = tmp.resolve("sieve.collapsed");
+    FlameGraphGo.go("collapse", jfr.toString(), "--out=" + collapsed);
+    assertThat(Files.readString(collapsed), containsString(ToProfileGo.class.getName() + ".main"));
+
+    // The flame graph can be drawn from either file.
+    Path svg = tmp.resolve("sieve.svg");
+    FlameGraphGo.go("svg", jfr.toString(), "--out=" + svg, "--title=Sieve");
+    assertThat(Files.readString(svg), containsString(">Sieve</text>"));
+    assertThat(Files.readString(svg), containsString(ToProfileGo.class.getName() + ".main"));
+    FlameGraphGo.go("svg", collapsed.toString(), "--out=" + svg);
+    assertThat(Files.readString(svg), containsString(">Flame Graph</text>"));
+    assertThat(Files.readString(svg), containsString(ToProfileGo.class.getName() + ".main"));
+  }
+
+  /** An application that spends most of its time blocked instead of running. */
+  public static class Blocking {
+
+    private static final Object LOCK = new Object();
+
+    public static void holdLock() throws InterruptedException {
+      synchronized (LOCK) {
+        Thread.sleep(5);
+      }
+    }
+
+    public static void main(String[] args) throws Exception {
+      Thread other =
+          new Thread(
+              () -> {
+                try {
+                  for (int i = 0; i < 20; i++) {
+                    holdLock();
+                  }
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+              });
+      other.start();
+      for (int i = 0; i < 20; i++) {
+        holdLock();
+        LockSupport.parkNanos(5_000_000);
+      }
+      other.join();
+    }
+  }
+
+  @Test
+  public void testRecordWallAndLock(@TempDir Path tmp) throws Exception {
+    Path jfr = tmp.resolve("blocking.jfr");
+    FlameGraphGo.go("record", "--jfr=" + jfr, "--main=" + Blocking.class.getName());
+    String holdLock = Blocking.class.getName() + ".holdLock";
+
+    // Threads sleep inside the lock, and park outside of it.
+    StackTrie wall = JfrStacks.read(jfr, JfrStacks.View.WALL);
+    assertThat(wall.getTotal(), greaterThan(100_000L));
+    Path collapsed = tmp.resolve("wall.collapsed");
+    FlameGraphGo.go("collapse", jfr.toString(), "--view=wall", "--out=" + collapsed);
+    assertThat(Files.readString(collapsed), containsString(holdLock + ";java.lang.Thread.sleep"));
+    assertThat(
+        Files.readString(collapsed),
+        containsString("java.util.concurrent.locks.LockSupport.parkNanos"));
+
+    // Both threads contend on the lock.
+    Path svg = tmp.resolve("lock.svg");
+    FlameGraphGo.go("svg", jfr.toString(), "--view=LOCK", "--out=" + svg);
+    assertThat(Files.readString(svg), containsString(holdLock + " ("));
+    assertThat(Files.readString(svg), containsString(" µs, "));
+    assertThat(Files.readString(svg), not(containsString("parkNanos")));
+
+    // The CPU view doesn't have any of the blocked time.
+    assertThat(JfrStacks.read(jfr).getTotal(), lessThan(wall.getTotal()));
+
+    FlameGraphGo.InternalDocoptException ex =
+        assertThrows(
+            FlameGraphGo.InternalDocoptException.class,
+            () -> FlameGraphGo.go("svg", jfr.toString(), "--view=garbage"));
+    assertThat(ex.getMessage(), is("Unknown view: garbage"));
+    assertThat(ex.getDocopt(), is(FlameGraphGo.DOC));
+  }
+
+  @Test
+  public void testDiff(@TempDir Path tmp) throws Exception {
+    Path before = Files.writeString(tmp.resolve("before.collapsed"), "main;a 50\nmain;b 50\n");
+    Path after = Files.writeString(tmp.resolve("after.collapsed"), "main;a 10\nmain;b 30\n");
+    Path svg = tmp.resolve("diff.svg");
+    FlameGraphGo.go("diff", before.toString(), after.toString(), "--out=" + svg, "--top=1");
+    assertThat(Files.readString(svg), containsString("<title>b (30 samples, 75.00%, +25.00%)"));
+
+    FlameGraphGo.InternalDocoptException ex =
+        assertThrows(
+            FlameGraphGo.InternalDocoptException.class,
+            () -> FlameGraphGo.go("diff", before.toString(), after.toString(), "--top=-1"));
+    assertThat(ex.getMessage(), is("Invalid number of frames: -1"));
+  }
+
+  @Test
+  public void testRecordFailure(@TempDir Path tmp) {
+    FlameGraphGo.InternalDocoptException ex =
+        assertThrows(
+            FlameGraphGo.InternalDocoptException.class,
+            () -> FlameGraphGo.go("record", "--jfr=" + tmp.resolve("x.jfr"), "--", "garbage"));
+    assertThat(ex.getMessage(), is("The recorded application failed with exit code 1"));
+  }
+}
@@ -0,0 +1,55 @@
+package com.skraba.byexample.benchmarking.flamegraph;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link FlameGraphSvg}. */
+public class FlameGraphSvgTest {
+
+  @Test
+  public void testRender() {
+    StackTrie root = new StackTrie();
+    root.add(List.of("main", "Lots<of>\"trouble\"&more"), 999).add(List.of("main", "tiny"), 1);
+    root.add(List.of("main", "hidden"), 0);
+    String svg = new FlameGraphSvg("Title & more").render(root);
+
+    assertThat(svg, startsWith("<?xml"));
+    assertThat(svg, endsWith("</svg>\n"));
+    assertThat(svg, containsString(">Title &amp; more</text>"));
+    // There is a frame for the root and each of the sampled frames, but not the empty one.
+    assertThat(svg.split("<rect").length - 1, is(5));
+    assertThat(svg, containsString("<title>all (1,000 samples, 100.00%)</title>"));
+    assertThat(svg, containsString("<title>main (1,000 samples, 100.00%)</title>"));
+    assertThat(
+        svg,
+        containsString("<title>Lots&lt;of&gt;&quot;trouble&quot;&amp;more (999 samples, 99.90%)"));
+    assertThat(svg, containsString("<title>tiny (1 samples, 0.10%)</title>"));
+    assertThat(svg, not(containsString("hidden")));
+    // The tiny frame is too narrow for its label.
+    assertThat(svg, not(containsString(">tiny</text>")));
+  }
+
+  @Test
+  public void testRenderEmpty() {
+    String svg = new FlameGraphSvg("Empty", node -> "red").render(new StackTrie());
+    assertThat(svg, containsString(">Empty</text>"));
+    assertThat(svg, not(containsString("<g>")));
+  }
+
+  @Test
+  public void testGetLabel() {
+    assertThat(FlameGraphSvg.getLabel("com.example.Main.main", 1000), is("com.example.Main.main"));
+    assertThat(FlameGraphSvg.getLabel("com.example.Main.main", 78), is("com.exam.."));
+    assertThat(FlameGraphSvg.getLabel("com.example.Main.main", 20), is(""));
+  }
+
+  @Test
+  public void testHot() {
+    String color = FlameGraphSvg.hot(new StackTrie("main"));
+    assertThat(color, startsWith("rgb("));
+    assertThat(FlameGraphSvg.hot(new StackTrie("main")), is(color));
+  }
+}
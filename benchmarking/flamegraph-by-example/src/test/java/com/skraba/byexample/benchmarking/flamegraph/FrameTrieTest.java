@@ -0,0 +1,76 @@
+package com.skraba.byexample.benchmarking.flamegraph;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link FrameTrie}. */
+public class FrameTrieTest {
+
+  /**
+   * @return a stack trace from the leaf to the root, where each frame is "Class.method".
+   */
+  private static StackTraceElement[] stack(String... frames) {
+    StackTraceElement[] stack = new StackTraceElement[frames.length];
+    for (int i = 0; i < frames.length; i++) {
+      int dot = frames[i].lastIndexOf('.');
+      stack[frames.length - 1 - i] =
+          new StackTraceElement(
+              frames[i].substring(0, dot), frames[i].substring(dot + 1), null, i + 1);
+    }
+    return stack;
+  }
+
+  @Test
+  public void testAdd() throws IOException {
+    FrameTrie trie = new FrameTrie();
+    assertThat(trie.add(stack("A.main", "A.run", "B.sleep")), is(true));
+    assertThat(trie.add(stack("A.main", "A.run", "B.sleep")), is(true));
+    assertThat(trie.add(stack("A.main", "A.run")), is(true));
+    assertThat(trie.add(stack("A.main", "A.other", "B.sleep")), is(true));
+    assertThat(trie.add(stack("T.run")), is(true));
+    assertThat(trie.add(stack()), is(false));
+
+    // The same frame has the same id.
+    assertThat(trie.getFrameId("A", "main"), is(trie.getFrameId("A", "main")));
+    assertThat(trie.getFrameId("B", "main"), not(trie.getFrameId("A", "main")));
+    assertThat(trie.getNodes(), is(7));
+    assertThat(trie.getSamples(), is(5L));
+    assertThat(trie.getDropped(), is(0L));
+
+    StringWriter out = new StringWriter();
+    trie.toStackTrie().writeCollapsed(out);
+    assertThat(
+        out.toString(),
+        is("A.main;A.other;B.sleep 1\nA.main;A.run 1\nA.main;A.run;B.sleep 2\nT.run 1\n"));
+  }
+
+  @Test
+  public void testMaxNodes() {
+    FrameTrie trie = new FrameTrie(4);
+    assertThat(trie.add(stack("A.main", "A.run", "B.sleep")), is(true));
+    assertThat(trie.add(stack("A.main", "A.run", "C.wait")), is(false));
+    assertThat(trie.add(stack("A.main", "A.run")), is(true));
+    assertThat(trie.getNodes(), is(4));
+    assertThat(trie.getSamples(), is(2L));
+    assertThat(trie.getDropped(), is(1L));
+    assertThat(trie.toStackTrie().getTotal(), is(2L));
+  }
+
+  @Test
+  public void testManyNodes() {
+    // Enough different stacks to grow the arrays and the hash table.
+    FrameTrie trie = new FrameTrie();
+    for (int i = 0; i < 5000; i++) {
+      trie.add(stack("A.main", "B.m" + (i % 100), "C.m" + i));
+      trie.add(stack("A.main", "B.m" + (i % 100), "C.m" + i));
+    }
+    assertThat(trie.getNodes(), is(1 + 1 + 100 + 5000));
+    StackTrie root = trie.toStackTrie();
+    assertThat(root.getTotal(), is(10000L));
+    assertThat(root.getChild("A.main").getChild("B.m7").getChild("C.m4907").getSelf(), is(2L));
+  }
+}
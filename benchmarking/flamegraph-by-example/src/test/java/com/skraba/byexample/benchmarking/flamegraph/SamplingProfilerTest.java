@@ -0,0 +1,111 @@
+package com.skraba.byexample.benchmarking.flamegraph;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link SamplingProfiler} and {@link SamplingAgent}. */
+public class SamplingProfilerTest {
+
+  /** A method that waits to be sampled. */
+  private static void waitToBeSampled(CountDownLatch done) throws InterruptedException {
+    done.await();
+  }
+
+  @Test
+  public void testSampleAndDump(@TempDir Path tmp) throws Exception {
+    Path out = tmp.resolve("test.collapsed");
+    SamplingProfiler profiler =
+        new SamplingProfiler(Duration.ofMillis(1), Duration.ofMillis(20), out, 100_000);
+
+    CountDownLatch done = new CountDownLatch(1);
+    Thread waiting =
+        new Thread(
+            () -> {
+              try {
+                waitToBeSampled(done);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    waiting.start();
+    profiler.start();
+    try {
+      // Wait until the file has been written at least once with the waiting method.
+      String frame = SamplingProfilerTest.class.getName() + ".waitToBeSampled";
+      long timeout = System.currentTimeMillis() + 10_000;
+      while (!Files.exists(out) || !Files.readString(out).contains(frame)) {
+        assertThat(System.currentTimeMillis(), lessThan(timeout));
+        Thread.sleep(10);
+      }
+    } finally {
+      done.countDown();
+      waiting.join();
+      profiler.stop();
+    }
+
+    assertThat(profiler.getTrie().getSamples(), greaterThan(0L));
+    StackTrie stacks = StackTrie.readCollapsed(out);
+    assertThat(stacks.getTotal(), is(profiler.getTrie().getSamples()));
+    // The sampling thread never samples itself.
+    assertThat(
+        Files.readString(out), not(containsString(SamplingProfiler.class.getName() + ".sample")));
+    assertThat(Files.exists(tmp.resolve("test.collapsed.tmp")), is(false));
+  }
+
+  @Test
+  public void testSampleAfterDumpFails(@TempDir Path tmp) throws Exception {
+    // The file can't be written until its directory exists.
+    Path out = tmp.resolve("missing").resolve("test.collapsed");
+    SamplingProfiler profiler =
+        new SamplingProfiler(Duration.ofMillis(1), Duration.ofMillis(5), out, 100_000);
+    profiler.start();
+    try {
+      Thread.sleep(50);
+      long samples = profiler.getTrie().getSamples();
+      assertThat(samples, greaterThan(0L));
+
+      // The sampler keeps running and writes the file as soon as it can.
+      Files.createDirectories(out.getParent());
+      long timeout = System.currentTimeMillis() + 10_000;
+      while (!Files.exists(out)) {
+        assertThat(System.currentTimeMillis(), lessThan(timeout));
+        Thread.sleep(10);
+      }
+      assertThat(profiler.getTrie().getSamples(), greaterThan(samples));
+    } finally {
+      profiler.stop();
+    }
+    assertThat(StackTrie.readCollapsed(out).getTotal(), is(profiler.getTrie().getSamples()));
+  }
+
+  @Test
+  public void testAgentOptions(@TempDir Path tmp) {
+    SamplingProfiler profiler = SamplingAgent.create(null);
+    assertThat(
+        profiler.getOut().toString(),
+        is("flamegraph-" + ProcessHandle.current().pid() + ".collapsed"));
+
+    profiler = SamplingAgent.create("interval=5, dump=1,file=" + tmp.resolve("x") + ",nodes=10");
+    assertThat(profiler.getOut(), is(tmp.resolve("x")));
+
+    IllegalArgumentException ex =
+        assertThrows(IllegalArgumentException.class, () -> SamplingAgent.create("interval"));
+    assertThat(ex.getMessage(), is("Expected key=value in agent option: interval"));
+    ex = assertThrows(IllegalArgumentException.class, () -> SamplingAgent.create("server=x"));
+    assertThat(ex.getMessage(), is("Unknown agent option: server"));
+    ex = assertThrows(IllegalArgumentException.class, () -> SamplingAgent.create("interval=0"));
+    assertThat(ex.getMessage(), is("Expected a positive number for agent option interval: 0"));
+    ex = assertThrows(IllegalArgumentException.class, () -> SamplingAgent.create("dump=-1"));
+    assertThat(ex.getMessage(), is("Expected a positive number for agent option dump: -1"));
+    ex = assertThrows(IllegalArgumentException.class, () -> SamplingAgent.create("nodes=x"));
+    assertThat(ex.getMessage(), is("Expected a positive number for agent option nodes: x"));
+  }
+}
@@ -0,0 +1,69 @@
+package com.skraba.byexample.benchmarking.flamegraph;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link StackTrie}. */
+public class StackTrieTest {
+
+  /** Some collapsed stacks, in the same order that they are written. */
+  private static final String COLLAPSED =
+      String.join("\n", "main 1", "main;a 2", "main;a;x 3", "main;b;x 4", "other;c 5", "");
+
+  @Test
+  public void testAdd() {
+    StackTrie root = new StackTrie();
+    root.add(List.of("main", "b", "x"), 4).add(List.of("main", "a"), 2).add(List.of("main"), 1);
+    root.add(List.of("main", "a", "x"), 3).add(List.of("other", "c"), 5);
+
+    assertThat(root.getName(), is(StackTrie.ROOT));
+    assertThat(root.getTotal(), is(15L));
+    assertThat(root.getSelf(), is(0L));
+    assertThat(root.getDepth(), is(3));
+    assertThat(
+        root.getChildren().stream().map(StackTrie::getName).collect(Collectors.toList()),
+        contains("main", "other"));
+
+    StackTrie main = root.getChild("main");
+    assertThat(main.getTotal(), is(10L));
+    assertThat(main.getSelf(), is(1L));
+    assertThat(main.getDepth(), is(2));
+    assertThat(main.getChild("a").getTotal(), is(5L));
+    assertThat(main.getChild("a").getSelf(), is(2L));
+    assertThat(main.getChild("a").getChild("x").getSelf(), is(3L));
+    assertThat(main.getChild("c"), nullValue());
+  }
+
+  @Test
+  public void testReadAndWriteCollapsed() throws IOException {
+    StackTrie root = StackTrie.readCollapsed(new StringReader(COLLAPSED + "\n  \nmain;a;x 1\n"));
+    assertThat(root.getTotal(), is(16L));
+    assertThat(root.getChild("main").getChild("a").getChild("x").getSelf(), is(4L));
+
+    StringWriter out = new StringWriter();
+    StackTrie.readCollapsed(new StringReader(COLLAPSED)).writeCollapsed(out);
+    assertThat(out.toString(), is(COLLAPSED));
+
+    IOException ex =
+        assertThrows(
+            IOException.class, () -> StackTrie.readCollapsed(new StringReader("main;a many")));
+    assertThat(ex.getMessage(), is("Not a collapsed stack: main;a many"));
+  }
+
+  @Test
+  public void testAddAll() throws IOException {
+    StackTrie root = StackTrie.readCollapsed(new StringReader(COLLAPSED));
+    root.addAll(StackTrie.readCollapsed(new StringReader("main;a 10\nnew 1")));
+    assertThat(root.getTotal(), is(26L));
+    assertThat(root.getChild("main").getChild("a").getSelf(), is(12L));
+    assertThat(root.getChild("new").getSelf(), is(1L));
+  }
+}
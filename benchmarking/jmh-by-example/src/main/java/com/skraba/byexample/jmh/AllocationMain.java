@@ -0,0 +1,161 @@
+package com.skraba.byexample.jmh;
+
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs JMH benchmarks like {@link org.openjdk.jmh.Main}, but always with the GC profiler, and
+ * prints the memory allocated for every operation next to the score.
+ *
+ * <p>Benchmark methods that are marked {@link AllocationFree} must not allocate more than a
+ * tolerance (JMH itself can allocate a tiny amount that is spread over all of the operations), or
+ * the tool exits with an error.
+ *
+ * <pre>
+ * alias byexample_go_jmh_alloc="java -cp $(find ~+ -name jmh-by-example-*.jar) \\
+ *     com.skraba.byexample.jmh.AllocationMain"
+ * # Any of the usual JMH options can be used after the tolerance.
+ * byexample_go_jmh_alloc --tolerance=1 -f 1 -wi 2 -i 5 -bm AverageTime -tu ns HashBenchmark
+ * </pre>
+ */
+public class AllocationMain {
+
+  /** The exit code when a benchmark that should be allocation-free allocates. */
+  public static final int EXIT_ALLOCATION = 1;
+
+  /** The exit code when the command line couldn't be used. */
+  public static final int EXIT_USAGE = 2;
+
+  /** The exit code when the benchmarks couldn't be run. */
+  public static final int EXIT_FAILURE = 3;
+
+  /** The secondary result from the GC profiler with the bytes allocated per operation. */
+  public static final String ALLOC_NORM = "gc.alloc.rate.norm";
+
+  /** The default number of bytes per operation that an allocation-free benchmark can allocate. */
+  public static final double DEFAULT_TOLERANCE = 1.0;
+
+  /** Main entry point to the application. */
+  public static void main(String[] args) {
+    System.exit(go(args));
+  }
+
+  /**
+   * Runs the tool.
+   *
+   * @param args An optional {@code --tolerance=BYTES} followed by the usual JMH options.
+   * @return the exit code.
+   */
+  public static int go(String... args) {
+    double tolerance = DEFAULT_TOLERANCE;
+    int i = 0;
+    if (args.length > 0 && args[0].startsWith("--tolerance=")) {
+      try {
+        tolerance = Double.parseDouble(args[0].substring("--tolerance=".length()));
+      } catch (NumberFormatException e) {
+        System.err.println("Invalid tolerance: " + args[0]);
+        return EXIT_USAGE;
+      }
+      i++;
+    }
+    try {
+      CommandLineOptions jmh = new CommandLineOptions(Arrays.copyOfRange(args, i, args.length));
+      return run(new OptionsBuilder().parent(jmh).build(), tolerance, System.out);
+    } catch (CommandLineOptionException e) {
+      System.err.println(e.getMessage());
+      return EXIT_USAGE;
+    } catch (RunnerException e) {
+      e.printStackTrace();
+      return EXIT_FAILURE;
+    }
+  }
+
+  /**
+   * Runs the benchmarks with the GC profiler and checks the allocation-free benchmarks.
+   *
+   * @param options The JMH options, which don't need to include the GC profiler.
+   * @param tolerance The number of bytes per operation that an allocation-free benchmark can
+   *     allocate.
+   * @param out Where to print the report.
+   * @return the exit code.
+   */
+  public static int run(Options options, double tolerance, PrintStream out) throws RunnerException {
+    Collection<RunResult> results =
+        new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build())
+            .run();
+    List<String> violations = report(results, tolerance, out);
+    violations.forEach(out::println);
+    return violations.isEmpty() ? 0 : EXIT_ALLOCATION;
+  }
+
+  /**
+   * Prints the score and allocation for every result.
+   *
+   * @return a description of every allocation-free benchmark that allocated.
+   */
+  static List<String> report(Collection<RunResult> results, double tolerance, PrintStream out) {
+    List<String> violations = new ArrayList<>();
+    out.printf(Locale.ROOT, "%-72s %14s %-8s %14s%n", "Benchmark", "Score", "Units", "B/op");
+    for (RunResult result : results) {
+      BenchmarkParams params = result.getParams();
+      // Only the class and method of the benchmark, without the package.
+      String benchmark = params.getBenchmark();
+      StringBuilder name =
+          new StringBuilder(
+              benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+      for (String key : params.getParamsKeys()) {
+        name.append(" ").append(key).append("=").append(params.getParam(key));
+      }
+      Result<?> alloc = result.getSecondaryResults().get(ALLOC_NORM);
+      double bytes = alloc == null ? Double.NaN : alloc.getScore();
+      boolean allocationFree = isAllocationFree(params.getBenchmark());
+      out.printf(
+          Locale.ROOT,
+          "%-72s %14.3f %-8s %14.3f%s%n",
+          name,
+          result.getPrimaryResult().getScore(),
+          result.getPrimaryResult().getScoreUnit(),
+          bytes,
+          allocationFree ? " (allocation-free)" : "");
+      if (allocationFree && !(bytes <= tolerance)) {
+        violations.add(String.format(Locale.ROOT, "ALLOCATION %s: %.3f B/op", name, bytes));
+      }
+    }
+    return violations;
+  }
+
+  /**
+   * @param benchmark The fully qualified name of the benchmark method.
+   * @return whether the benchmark method is marked with {@link AllocationFree}.
+   */
+  static boolean isAllocationFree(String benchmark) {
+    int dot = benchmark.lastIndexOf('.');
+    try {
+      Class<?> benchmarkClass = Class.forName(benchmark.substring(0, dot));
+      for (Method m : benchmarkClass.getMethods()) {
+        if (m.getName().equals(benchmark.substring(dot + 1))
+            && m.isAnnotationPresent(AllocationFree.class)) {
+          return true;
+        }
+      }
+      return false;
+    } catch (ClassNotFoundException | StringIndexOutOfBoundsException e) {
+      return false;
+    }
+  }
+}
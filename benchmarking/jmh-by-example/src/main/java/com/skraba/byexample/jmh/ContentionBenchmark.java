@@ -0,0 +1,172 @@
+package com.skraba.byexample.jmh;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * How well do shared lookup tables scale when many threads are reading and updating them at the
+ * same time?
+ *
+ * <p>Every thread looks up random keys in the same shared map, and a percentage of the operations
+ * replace a value instead. The maps being compared are:
+ *
+ * <ul>
+ *   <li>A {@link HashMap} behind a single lock, where only one thread can use the map at a time.
+ *   <li>A {@link ConcurrentHashMap}, where reads never lock.
+ *   <li>An immutable map that is copied and swapped on every write, where reads never lock but
+ *       writes are very expensive.
+ *   <li>A {@link StripedMap}, where threads only contend on the same stripe.
+ * </ul>
+ *
+ * <p>The number of threads is set on the command line, to see how the throughput changes from one
+ * to many cores.
+ *
+ * <pre>
+ * byexample_go_jmh -f 1 -wi 2 -i 5 -bm Throughput -tu us ContentionBenchmark -t 1
+ * byexample_go_jmh -f 1 -wi 2 -i 5 -bm Throughput -tu us ContentionBenchmark -t 8 -p writes=5
+ * </pre>
+ */
+@Threads(4)
+public class ContentionBenchmark {
+
+  /** The value that is written to the maps. */
+  private static final String VALUE = "value";
+
+  /** The keys that are read and written, and the mix of operations. */
+  @State(Scope.Benchmark)
+  public static class SharedKeys {
+
+    @Param({"1000", "100000"})
+    int keys;
+
+    /** The percentage of operations that are writes, the rest are reads. */
+    @Param({"0", "5", "50"})
+    int writes;
+
+    String[] names;
+
+    /**
+     * @return the initial entries for every map.
+     */
+    protected Map<String, String> generate() {
+      names = new String[keys];
+      Map<String, String> entries = new HashMap<>();
+      for (int i = 0; i < keys; i++) {
+        names[i] = "key" + i;
+        entries.put(names[i], Integer.toString(i));
+      }
+      return entries;
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class LockedMap extends SharedKeys {
+    Map<String, String> map;
+
+    @Setup
+    public void setup() {
+      map = Collections.synchronizedMap(new HashMap<>(generate()));
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class ConcurrentMap extends SharedKeys {
+    ConcurrentHashMap<String, String> map;
+
+    @Setup
+    public void setup() {
+      map = new ConcurrentHashMap<>(generate());
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class CopyOnWriteMap extends SharedKeys {
+    volatile Map<String, String> map;
+
+    @Setup
+    public void setup() {
+      map = Collections.unmodifiableMap(generate());
+    }
+
+    /** Writers copy the current map, and swap in the copy with the new value. */
+    public synchronized void put(String key, String value) {
+      Map<String, String> copy = new HashMap<>(map);
+      copy.put(key, value);
+      map = Collections.unmodifiableMap(copy);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class StripedLockMap extends SharedKeys {
+    StripedMap map;
+
+    @Setup
+    public void setup() {
+      map = new StripedMap(64);
+      generate().forEach(map::put);
+    }
+  }
+
+  /** Every thread has its own random numbers, so that the threads only share the map. */
+  @State(Scope.Thread)
+  public static class Ops {
+
+    private long seed = System.nanoTime() | 1L;
+
+    /**
+     * @return the next random number from a xorshift generator.
+     */
+    long next() {
+      seed ^= seed << 13;
+      seed ^= seed >>> 7;
+      seed ^= seed << 17;
+      return seed;
+    }
+
+    /**
+     * @param shared The keys and the mix of operations.
+     * @return the index of the next key to use, negative if the operation is a write.
+     */
+    int nextOp(SharedKeys shared) {
+      long r = next();
+      int index = (int) ((r >>> 32) % shared.keys);
+      return (r & 0xFFFF) * 100 < shared.writes * 0x10000L ? -1 - index : index;
+    }
+  }
+
+  @Benchmark
+  public String locked(LockedMap shared, Ops ops) {
+    int op = ops.nextOp(shared);
+    return op < 0 ? shared.map.put(shared.names[-1 - op], VALUE) : shared.map.get(shared.names[op]);
+  }
+
+  @Benchmark
+  public String concurrent(ConcurrentMap shared, Ops ops) {
+    int op = ops.nextOp(shared);
+    return op < 0 ? shared.map.put(shared.names[-1 - op], VALUE) : shared.map.get(shared.names[op]);
+  }
+
+  @Benchmark
+  public String copyOnWrite(CopyOnWriteMap shared, Ops ops) {
+    int op = ops.nextOp(shared);
+    if (op < 0) {
+      shared.put(shared.names[-1 - op], VALUE);
+      return null;
+    }
+    return shared.map.get(shared.names[op]);
+  }
+
+  @Benchmark
+  public String striped(StripedLockMap shared, Ops ops) {
+    int op = ops.nextOp(shared);
+    return op < 0 ? shared.map.put(shared.names[-1 - op], VALUE) : shared.map.get(shared.names[op]);
+  }
+}
@@ -0,0 +1,229 @@
+package com.skraba.byexample.jmh;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks on encoding and decoding a {@link BigDecimal} to and from the big-endian two's
+ * complement bytes of its unscaled value, which is how Avro stores the decimal logical type.
+ *
+ * <p>Avro uses {@link BigInteger#toByteArray()} and {@link BigInteger#BigInteger(byte[])}, which
+ * always allocate a {@link BigInteger} along the way. When the unscaled value fits in a long, the
+ * {@link BigDecimal} doesn't use a {@link BigInteger} internally, and the bytes can be read and
+ * written directly from the long. The fixed size variants sign-extend the value to the number of
+ * bytes needed for the precision, like an Avro {@code fixed} (see {@link MaxPrecisionBenchmark}).
+ *
+ * <pre>
+ * byexample_go_jmh -f 1 -wi 2 -i 5 -bm AverageTime -tu ns DecimalBenchmark -prof gc
+ * </pre>
+ */
+public class DecimalBenchmark {
+
+  /** The number of values encoded or decoded in each invocation. */
+  public static final int VALUES = 1024;
+
+  /** The largest precision that is guaranteed to fit in a long. */
+  public static final int MAX_LONG_PRECISION = 18;
+
+  /**
+   * Encodes the unscaled value like Avro.
+   *
+   * @param value the decimal to encode.
+   * @return the minimal two's complement bytes of the unscaled value.
+   */
+  public static byte[] encode(BigDecimal value) {
+    return value.unscaledValue().toByteArray();
+  }
+
+  /**
+   * Decodes the unscaled value like Avro.
+   *
+   * @param bytes the two's complement bytes of the unscaled value.
+   * @param scale the scale of the decimal.
+   * @return the decimal.
+   */
+  public static BigDecimal decode(byte[] bytes, int scale) {
+    return new BigDecimal(new BigInteger(bytes), scale);
+  }
+
+  /**
+   * The same as {@link #decode(byte[], int)}, but without creating a {@link BigInteger} when the
+   * unscaled value fits in a long.
+   *
+   * @param bytes the two's complement bytes of the unscaled value.
+   * @param scale the scale of the decimal.
+   * @return the decimal.
+   * @throws NumberFormatException if there are no bytes, like {@link #decode(byte[], int)}.
+   */
+  public static BigDecimal decodeWithLong(byte[] bytes, int scale) {
+    if (bytes.length == 0 || bytes.length > Long.BYTES) {
+      return decode(bytes, scale);
+    }
+    // The first byte is sign-extended.
+    long unscaled = bytes[0];
+    for (int i = 1; i < bytes.length; i++) {
+      unscaled = (unscaled << 8) | (bytes[i] & 0xFF);
+    }
+    return BigDecimal.valueOf(unscaled, scale);
+  }
+
+  /**
+   * @param precision the number of decimal digits.
+   * @return the smallest number of bytes that can hold any unscaled value with the precision.
+   */
+  public static int getFixedSize(int precision) {
+    int size = 1;
+    while (MaxPrecisionBenchmark.getMaxPrecisionWithTable(size) < precision) {
+      size++;
+    }
+    return size;
+  }
+
+  /**
+   * Encodes the unscaled value like Avro into a fixed number of bytes.
+   *
+   * @param value the decimal to encode.
+   * @param fixed the bytes to overwrite with the sign-extended unscaled value.
+   * @throws IllegalArgumentException if the value doesn't fit.
+   */
+  public static void encodeFixed(BigDecimal value, byte[] fixed) {
+    byte[] bytes = encode(value);
+    int padding = fixed.length - bytes.length;
+    if (padding < 0) {
+      throw new IllegalArgumentException("The value doesn't fit in " + fixed.length + " bytes");
+    }
+    Arrays.fill(fixed, 0, padding, bytes[0] < 0 ? (byte) -1 : 0);
+    System.arraycopy(bytes, 0, fixed, padding, bytes.length);
+  }
+
+  /**
+   * The same as {@link #encodeFixed(BigDecimal, byte[])}, but without creating a {@link BigInteger}
+   * or intermediate byte array when the unscaled value fits in a long. Moving the decimal point to
+   * get the unscaled value still creates a new {@link BigDecimal}.
+   *
+   * @param value the decimal to encode.
+   * @param fixed the bytes to overwrite with the sign-extended unscaled value.
+   * @throws IllegalArgumentException if the value doesn't fit.
+   */
+  public static void encodeFixedWithLong(BigDecimal value, byte[] fixed) {
+    if (value.precision() > MAX_LONG_PRECISION) {
+      encodeFixed(value, fixed);
+      return;
+    }
+    // Moving the point doesn't change the unscaled value, which stays in a long.
+    long unscaled = value.movePointRight(value.scale()).longValueExact();
+    if (fixed.length < Long.BYTES) {
+      long limit = 1L << (fixed.length * 8 - 1);
+      if (unscaled < -limit || unscaled >= limit) {
+        throw new IllegalArgumentException("The value doesn't fit in " + fixed.length + " bytes");
+      }
+    }
+    for (int i = fixed.length - 1; i >= 0; i--) {
+      fixed[i] = (byte) unscaled;
+      unscaled >>= 8;
+    }
+  }
+
+  /** Random decimals with the given precision and scale, and their encoded bytes. */
+  @State(Scope.Benchmark)
+  public static class Decimals {
+
+    @Param({"4", "9", "18", "38", "76"})
+    int precision;
+
+    @Param({"0", "2", "10"})
+    int scale;
+
+    BigDecimal[] values;
+    byte[][] encoded;
+    byte[][] fixed;
+
+    @Setup
+    public void setup() {
+      Random random = new Random(precision * 100L + scale);
+      values = new BigDecimal[VALUES];
+      encoded = new byte[VALUES][];
+      fixed = new byte[VALUES][];
+      for (int i = 0; i < VALUES; i++) {
+        values[i] = random(random, precision, scale);
+        encoded[i] = encode(values[i]);
+        fixed[i] = new byte[getFixedSize(precision)];
+        encodeFixed(values[i], fixed[i]);
+      }
+    }
+
+    /**
+     * @return a random decimal with exactly the given precision and scale.
+     */
+    static BigDecimal random(Random random, int precision, int scale) {
+      char[] digits = new char[precision];
+      digits[0] = (char) ('1' + random.nextInt(9));
+      for (int i = 1; i < precision; i++) {
+        digits[i] = (char) ('0' + random.nextInt(10));
+      }
+      BigInteger unscaled = new BigInteger(new String(digits));
+      return new BigDecimal(random.nextBoolean() ? unscaled : unscaled.negate(), scale);
+    }
+  }
+
+  @OperationsPerInvocation(VALUES)
+  @Benchmark
+  public void encode(Decimals decimals, Blackhole bh) {
+    for (BigDecimal value : decimals.values) {
+      bh.consume(encode(value));
+    }
+  }
+
+  @OperationsPerInvocation(VALUES)
+  @Benchmark
+  public void encodeFixed(Decimals decimals, Blackhole bh) {
+    byte[] fixed = new byte[getFixedSize(decimals.precision)];
+    for (BigDecimal value : decimals.values) {
+      encodeFixed(value, fixed);
+      bh.consume(fixed);
+    }
+  }
+
+  @OperationsPerInvocation(VALUES)
+  @Benchmark
+  public void encodeFixedWithLong(Decimals decimals, Blackhole bh) {
+    byte[] fixed = new byte[getFixedSize(decimals.precision)];
+    for (BigDecimal value : decimals.values) {
+      encodeFixedWithLong(value, fixed);
+      bh.consume(fixed);
+    }
+  }
+
+  @OperationsPerInvocation(VALUES)
+  @Benchmark
+  public void decode(Decimals decimals, Blackhole bh) {
+    for (byte[] bytes : decimals.encoded) {
+      bh.consume(decode(bytes, decimals.scale));
+    }
+  }
+
+  @OperationsPerInvocation(VALUES)
+  @Benchmark
+  public void decodeWithLong(Decimals decimals, Blackhole bh) {
+    for (byte[] bytes : decimals.encoded) {
+      bh.consume(decodeWithLong(bytes, decimals.scale));
+    }
+  }
+
+  @OperationsPerInvocation(VALUES)
+  @Benchmark
+  public void decodeFixedWithLong(Decimals decimals, Blackhole bh) {
+    for (byte[] bytes : decimals.fixed) {
+      bh.consume(decodeWithLong(bytes, decimals.scale));
+    }
+  }
+}
@@ -1,8 +1,17 @@
 package com.skraba.byexample.jmh;
 
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.infra.Blackhole;
 
@@ -22,6 +31,19 @@ import org.openjdk.jmh.infra.Blackhole;
  * HashBenchmark.array  avgt   30  30.497 ± 1.049  ns/op
  * HashBenchmark.hash   avgt   30  75.375 ± 1.354  ns/op
  * </pre>
+ *
+ * <p>When the ten keys are known in advance, there are other ways to look them up: an {@link
+ * EnumMap} (if the keys can be enums instead of strings), a {@code switch} on the string, or a
+ * perfect hash function that was worked out by hand.
+ *
+ * <p>Ten keys always fit in the CPU cache, so the {@code scaled} benchmarks look up keys from a set
+ * of up to a million keys, where most lookups are a cache miss. The keys are either looked up
+ * uniformly, or skewed so that a few keys are looked up much more often than the others.
+ *
+ * <pre>
+ * byexample_go_jmh -f 1 -wi 2 -i 5 -bm AverageTime -tu ns HashBenchmark -e scaled
+ * byexample_go_jmh -f 1 -wi 2 -i 5 -bm AverageTime -tu ns HashBenchmark.scaled -p keys=1000000
+ * </pre>
  */
 public class HashBenchmark {
 
@@ -64,6 +86,7 @@ public class HashBenchmark {
     }
   }
 
+  @AllocationFree
   @Benchmark
   public void hash(HashLookup hash, Blackhole bh) {
     bh.consume(hash.get("zero"));
@@ -78,6 +101,7 @@ public class HashBenchmark {
     bh.consume(hash.get("nine"));
   }
 
+  @AllocationFree
   @Benchmark
   public void array(ArrayLookup array, Blackhole bh) {
     bh.consume(array.get(0));
@@ -91,4 +115,257 @@ public class HashBenchmark {
     bh.consume(array.get(8));
     bh.consume(array.get(9));
   }
+
+  /** The same ten keys as an enum. */
+  public enum Digit {
+    ZERO,
+    ONE,
+    TWO,
+    THREE,
+    FOUR,
+    FIVE,
+    SIX,
+    SEVEN,
+    EIGHT,
+    NINE
+  }
+
+  /** The ten keys, when they are known in advance. */
+  @State(Scope.Benchmark)
+  public static class FixedLookup {
+
+    /** The keys are read from the state so that the lookups can't be folded into constants. */
+    volatile String[] names = {
+      "zero", "one", "two", "three", "four", "five", "six", "seven", "eight", "nine"
+    };
+
+    volatile Digit[] digits = Digit.values();
+
+    volatile EnumMap<Digit, String> map = new EnumMap<>(Digit.class);
+
+    /** The keys and values in the slots given by {@link #perfectSlot}. */
+    private static final String[] PERFECT_KEYS = new String[16];
+
+    private static final String[] PERFECT_VALUES = new String[16];
+
+    static {
+      String[] keys = {
+        "zero", "one", "two", "three", "four", "five", "six", "seven", "eight", "nine"
+      };
+      String[] values = {
+        "zero", "un", "deux", "trois", "quatre", "cinq", "six", "sept", "huit", "neuf"
+      };
+      for (int i = 0; i < keys.length; i++) {
+        PERFECT_KEYS[perfectSlot(keys[i])] = keys[i];
+        PERFECT_VALUES[perfectSlot(keys[i])] = values[i];
+      }
+    }
+
+    public FixedLookup() {
+      String[] values = {
+        "zero", "un", "deux", "trois", "quatre", "cinq", "six", "sept", "huit", "neuf"
+      };
+      for (Digit d : Digit.values()) {
+        map.put(d, values[d.ordinal()]);
+      }
+    }
+
+    /**
+     * A perfect hash function for the ten keys, found by trying a few simple formulas until one put
+     * every key in a different slot.
+     *
+     * @param key A key that has at least three characters.
+     * @return a different slot from 0 to 15 for each of the ten keys.
+     */
+    static int perfectSlot(String key) {
+      return (key.charAt(2) * 6 + key.charAt(0)) & 15;
+    }
+
+    public String getPerfect(String key) {
+      if (key.length() < 3) {
+        return null;
+      }
+      int slot = perfectSlot(key);
+      return key.equals(PERFECT_KEYS[slot]) ? PERFECT_VALUES[slot] : null;
+    }
+
+    public String getSwitch(String key) {
+      switch (key) {
+        case "zero":
+          return "zero";
+        case "one":
+          return "un";
+        case "two":
+          return "deux";
+        case "three":
+          return "trois";
+        case "four":
+          return "quatre";
+        case "five":
+          return "cinq";
+        case "six":
+          return "six";
+        case "seven":
+          return "sept";
+        case "eight":
+          return "huit";
+        case "nine":
+          return "neuf";
+        default:
+          return null;
+      }
+    }
+  }
+
+  @AllocationFree
+  @Benchmark
+  public void enumMap(FixedLookup fixed, Blackhole bh) {
+    Digit[] digits = fixed.digits;
+    for (int i = 0; i < 10; i++) {
+      bh.consume(fixed.map.get(digits[i]));
+    }
+  }
+
+  @AllocationFree
+  @Benchmark
+  public void switchOnString(FixedLookup fixed, Blackhole bh) {
+    String[] names = fixed.names;
+    for (int i = 0; i < 10; i++) {
+      bh.consume(fixed.getSwitch(names[i]));
+    }
+  }
+
+  @AllocationFree
+  @Benchmark
+  public void perfectHash(FixedLookup fixed, Blackhole bh) {
+    String[] names = fixed.names;
+    for (int i = 0; i < 10; i++) {
+      bh.consume(fixed.getPerfect(names[i]));
+    }
+  }
+
+  /** The number of keys looked up in every invocation of the scaled benchmarks. */
+  public static final int QUERIES = 64 * 1024;
+
+  /**
+   * A set of random keys and values, and the keys to look up. The subclasses build the different
+   * lookup structures from the same keys.
+   */
+  @State(Scope.Benchmark)
+  public static class ScaledKeys {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    int keys;
+
+    @Param({"uniform", "skewed"})
+    String distribution;
+
+    /** Copies of the keys to look up, so that they have to be compared character by character. */
+    String[] queries;
+
+    /**
+     * Generates the keys and the queries, which are always the same for the same parameters.
+     *
+     * @return the entries to put in the lookup structure.
+     */
+    protected Map<String, String> generate() {
+      Random random = new Random(keys);
+      Set<String> unique = new HashSet<>();
+      String[] names = new String[keys];
+      Map<String, String> entries = new LinkedHashMap<>();
+      for (int i = 0; i < keys; i++) {
+        // Between 1 and 13 base-36 digits, and a leading - when a negative value isn't shifted.
+        do {
+          names[i] = Long.toString(random.nextLong() >>> random.nextInt(64), 36);
+        } while (!unique.add(names[i]));
+        entries.put(names[i], Integer.toString(i));
+      }
+
+      queries = new String[QUERIES];
+      for (int i = 0; i < QUERIES; i++) {
+        double r = random.nextDouble();
+        // Skewed towards the first keys: half of the queries are for 1/16th of the keys.
+        int index = (int) (keys * ("skewed".equals(distribution) ? r * r * r * r : r));
+        queries[i] = new String(names[index]);
+      }
+      return entries;
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class ScaledHashMap extends ScaledKeys {
+    HashMap<String, String> map;
+
+    @Setup
+    public void setup() {
+      map = new HashMap<>(generate());
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class ScaledOpenAddressing extends ScaledKeys {
+    OpenAddressingMap map;
+
+    @Setup
+    public void setup() {
+      Map<String, String> entries = generate();
+      map = new OpenAddressingMap(entries.size());
+      entries.forEach(map::put);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class ScaledPerfectHash extends ScaledKeys {
+    PerfectHashMap map;
+
+    @Setup
+    public void setup() {
+      map = new PerfectHashMap(generate());
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class ScaledOffHeap extends ScaledKeys {
+    OffHeapMap map;
+
+    @Setup
+    public void setup() {
+      map = new OffHeapMap(generate());
+    }
+  }
+
+  @OperationsPerInvocation(QUERIES)
+  @AllocationFree
+  @Benchmark
+  public void scaledHashMap(ScaledHashMap scaled, Blackhole bh) {
+    for (String query : scaled.queries) {
+      bh.consume(scaled.map.get(query));
+    }
+  }
+
+  @OperationsPerInvocation(QUERIES)
+  @AllocationFree
+  @Benchmark
+  public void scaledOpenAddressing(ScaledOpenAddressing scaled, Blackhole bh) {
+    for (String query : scaled.queries) {
+      bh.consume(scaled.map.get(query));
+    }
+  }
+
+  @OperationsPerInvocation(QUERIES)
+  @AllocationFree
+  @Benchmark
+  public void scaledPerfectHash(ScaledPerfectHash scaled, Blackhole bh) {
+    for (String query : scaled.queries) {
+      bh.consume(scaled.map.get(query));
+    }
+  }
+
+  @OperationsPerInvocation(QUERIES)
+  @Benchmark
+  public void scaledOffHeap(ScaledOffHeap scaled, Blackhole bh) {
+    for (String query : scaled.queries) {
+      bh.consume(scaled.map.get(query));
+    }
+  }
 }
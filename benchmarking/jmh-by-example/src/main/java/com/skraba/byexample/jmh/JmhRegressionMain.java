@@ -0,0 +1,515 @@
+package com.skraba.byexample.jmh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs JMH benchmarks like {@link org.openjdk.jmh.Main}, but keeps the JSON results in a history
+ * directory, and fails if any benchmark got slower than the last run.
+ *
+ * <p>Every run is saved as {@code <commit>_<jvm>.json} using the current git commit and JVM
+ * version, and compared to the most recent other run on the same JVM, or an explicit baseline. If
+ * there are uncommitted changes, the commit ends with {@code -dirty}, and running again on the same
+ * commit compares to the run that it replaces. A benchmark is only a regression if it is slower by
+ * more than the threshold, <b>and</b> the error bounds reported by JMH for the two runs don't
+ * overlap.
+ *
+ * <pre>
+ * alias byexample_go_jmh_regression="java -cp $(find ~+ -name jmh-by-example-*.jar) \
+ *     com.skraba.byexample.jmh.JmhRegressionMain"
+ * # Any of the usual JMH options can be used after the regression options.
+ * byexample_go_jmh_regression --history=/tmp/jmh-history -f 1 -wi 2 -i 5 HashBenchmark.hash
+ * # Compare two existing runs without running any benchmarks.
+ * byexample_go_jmh_regression --history=/tmp/jmh-history --baseline=abc1234 --current=def5678
+ * </pre>
+ */
+public class JmhRegressionMain {
+
+  /** The exit code when at least one benchmark is slower. */
+  public static final int EXIT_REGRESSION = 1;
+
+  /** The exit code when the command line couldn't be used. */
+  public static final int EXIT_USAGE = 2;
+
+  /** The exit code when the benchmarks couldn't be run or the results couldn't be read. */
+  public static final int EXIT_FAILURE = 3;
+
+  public static final String USAGE =
+      String.join(
+          "\n",
+          "Usage: JmhRegressionMain [--history=DIR] [--baseline=KEY] [--current=KEY]",
+          "           [--threshold=PERCENT] [JMH options...]",
+          "",
+          "  --history=DIR        Where the results are kept [default: jmh-history]",
+          "  --baseline=KEY       The run to compare to, either a commit on this JVM",
+          "                       or a file name (default: the most recent run on",
+          "                       this JVM).",
+          "  --current=KEY        Don't run the benchmarks, but compare an existing run.",
+          "  --threshold=PERCENT  Ignore smaller changes [default: 5]");
+
+  /** The result of one benchmark with one set of parameters. */
+  public static class Score {
+    final String key;
+    final String mode;
+    final double score;
+    final double error;
+    final String unit;
+
+    Score(String key, String mode, double score, double error, String unit) {
+      this.key = key;
+      this.mode = mode;
+      this.score = score;
+      this.error = Double.isNaN(error) ? 0 : error;
+      this.unit = unit;
+    }
+
+    /**
+     * @return whether a bigger score is better, which is only true for throughput.
+     */
+    boolean isHigherBetter() {
+      return "thrpt".equals(mode);
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT, "%.3f ± %.3f %s", score, error, unit);
+    }
+  }
+
+  /** Main entry point to the application. */
+  public static void main(String[] args) {
+    System.exit(go(args));
+  }
+
+  /**
+   * Runs the tool.
+   *
+   * @param args command-line arguments as described in USAGE.
+   * @return the exit code.
+   */
+  public static int go(String... args) {
+    Path history = Paths.get("jmh-history");
+    String baseline = null;
+    String current = null;
+    double threshold = 5;
+    int i = 0;
+    for (; i < args.length && args[i].startsWith("--"); i++) {
+      String[] option = args[i].split("=", 2);
+      if (option.length != 2) {
+        System.err.println(USAGE);
+        return EXIT_USAGE;
+      }
+      switch (option[0]) {
+        case "--history":
+          history = Paths.get(option[1]);
+          break;
+        case "--baseline":
+          baseline = option[1];
+          break;
+        case "--current":
+          current = option[1];
+          break;
+        case "--threshold":
+          try {
+            threshold = Double.parseDouble(option[1]);
+          } catch (NumberFormatException e) {
+            threshold = Double.NaN;
+          }
+          if (!(threshold >= 0)) {
+            System.err.println("Invalid threshold: " + option[1]);
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+          }
+          break;
+        default:
+          System.err.println(USAGE);
+          return EXIT_USAGE;
+      }
+    }
+
+    try {
+      Files.createDirectories(history);
+      Path currentFile;
+      Map<String, Score> previous = null;
+      if (current == null) {
+        currentFile = history.resolve(getKey(getCommit(), getJvm()) + ".json");
+        // Rerunning on the same commit replaces the last run, which is the best baseline.
+        if (baseline == null && Files.exists(currentFile)) {
+          previous = readScores(currentFile);
+        }
+        CommandLineOptions jmh = new CommandLineOptions(Arrays.copyOfRange(args, i, args.length));
+        new Runner(
+                new OptionsBuilder()
+                    .parent(jmh)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(currentFile.toString())
+                    .build())
+            .run();
+      } else {
+        currentFile = findRun(history, current, null);
+      }
+
+      if (previous == null) {
+        Path baselineFile = findRun(history, baseline, currentFile);
+        if (baselineFile == null) {
+          System.out.println("No baseline to compare to in " + history);
+          return 0;
+        }
+        System.out.println("Comparing " + currentFile + " to " + baselineFile);
+        previous = readScores(baselineFile);
+      } else {
+        System.out.println("Comparing " + currentFile + " to the previous run");
+      }
+      List<String> regressions = findRegressions(previous, readScores(currentFile), threshold);
+      regressions.forEach(System.out::println);
+      return regressions.isEmpty() ? 0 : EXIT_REGRESSION;
+    } catch (CommandLineOptionException | IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      return EXIT_USAGE;
+    } catch (IOException | RunnerException e) {
+      e.printStackTrace();
+      return EXIT_FAILURE;
+    }
+  }
+
+  /**
+   * @return a key for a run that can be used as a file name.
+   */
+  static String getKey(String commit, String jvm) {
+    return (commit + "_" + jvm).replaceAll("[^A-Za-z0-9._-]+", "-");
+  }
+
+  /**
+   * @return the JVM and its version, which should be the same as the forked JVMs.
+   */
+  static String getJvm() {
+    return System.getProperty("java.vm.name") + "-" + System.getProperty("java.version");
+  }
+
+  /**
+   * @return the short hash of the current git commit, with "-dirty" if there are uncommitted
+   *     changes, or "unknown" if it isn't available.
+   */
+  static String getCommit() {
+    String commit = git("rev-parse", "--short", "HEAD");
+    if (commit == null || commit.isEmpty()) {
+      return "unknown";
+    }
+    String status = git("status", "--porcelain", "--untracked-files=no");
+    return status == null || status.isEmpty() ? commit : commit + "-dirty";
+  }
+
+  /**
+   * @return the output of the git command, or null if it failed.
+   */
+  private static String git(String... args) {
+    String[] command = new String[args.length + 1];
+    command[0] = "git";
+    System.arraycopy(args, 0, command, 1, args.length);
+    try {
+      Process git = new ProcessBuilder(command).redirectErrorStream(true).start();
+      try (InputStream in = git.getInputStream()) {
+        String out = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        return git.waitFor() == 0 ? out : null;
+      }
+    } catch (IOException e) {
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  /**
+   * Finds a run in the history.
+   *
+   * @param history The history directory.
+   * @param key The commit of a run on the same JVM, or the file name of any run with or without the
+   *     extension, or null to find the most recent run on the same JVM.
+   * @param exclude A run that should never be found, or null.
+   * @return the file of the run, or null if there isn't any run to use as a baseline.
+   * @throws IllegalArgumentException if the key doesn't match exactly one run.
+   */
+  static Path findRun(Path history, String key, Path exclude) throws IOException {
+    try (Stream<Path> files = Files.list(history)) {
+      List<Path> runs =
+          files
+              .filter(f -> f.getFileName().toString().endsWith(".json"))
+              .filter(f -> exclude == null || !f.equals(exclude))
+              .filter(
+                  f -> {
+                    String name = f.getFileName().toString();
+                    return key == null
+                        ? name.endsWith(getKey("", getJvm()) + ".json")
+                        : name.equals(getKey(key, getJvm()) + ".json")
+                            || name.equals(key)
+                            || name.equals(key + ".json");
+                  })
+              .collect(Collectors.toList());
+      if (key == null) {
+        Path latest = null;
+        for (Path run : runs) {
+          if (latest == null
+              || Files.getLastModifiedTime(run).compareTo(Files.getLastModifiedTime(latest)) > 0) {
+            latest = run;
+          }
+        }
+        return latest;
+      }
+      if (runs.size() != 1) {
+        throw new IllegalArgumentException(
+            "Expected one run for " + key + " in " + history + " but found " + runs);
+      }
+      return runs.get(0);
+    }
+  }
+
+  /**
+   * Reads the primary scores from a JMH JSON result file.
+   *
+   * @param file The JSON file written by JMH.
+   * @return the scores by benchmark and parameters, in a stable order.
+   */
+  @SuppressWarnings("unchecked")
+  static Map<String, Score> readScores(Path file) throws IOException {
+    Map<String, Score> scores = new TreeMap<>();
+    Object json = new JsonReader(Files.readString(file)).read();
+    for (Object run : (List<Object>) json) {
+      Map<String, Object> result = (Map<String, Object>) run;
+      StringBuilder key = new StringBuilder((String) result.get("benchmark"));
+      Map<String, Object> params = (Map<String, Object>) result.get("params");
+      if (params != null) {
+        key.append(new TreeMap<>(params));
+      }
+      String mode = (String) result.get("mode");
+      key.append(" ").append(mode);
+      Map<String, Object> metric = (Map<String, Object>) result.get("primaryMetric");
+      scores.put(
+          key.toString(),
+          new Score(
+              key.toString(),
+              mode,
+              toDouble(metric.get("score")),
+              toDouble(metric.get("scoreError")),
+              (String) metric.get("scoreUnit")));
+    }
+    return scores;
+  }
+
+  /**
+   * @return the number, which JMH sometimes writes as a string like "NaN".
+   */
+  private static double toDouble(Object value) {
+    return value instanceof Number
+        ? ((Number) value).doubleValue()
+        : Double.parseDouble(String.valueOf(value));
+  }
+
+  /**
+   * Compares two runs. Benchmarks that are only in one of the runs are ignored.
+   *
+   * @param baseline The scores from the earlier run.
+   * @param current The scores from the new run.
+   * @param threshold The percentage that a benchmark needs to be slower to be a regression.
+   * @return a description of every benchmark that is significantly slower.
+   */
+  static List<String> findRegressions(
+      Map<String, Score> baseline, Map<String, Score> current, double threshold) {
+    List<String> regressions = new ArrayList<>();
+    for (Score now : current.values()) {
+      Score then = baseline.get(now.key);
+      // A percentage can't be calculated from a zero score.
+      if (then == null || !then.unit.equals(now.unit) || then.score == 0) {
+        continue;
+      }
+      // How much worse the current score is, as a positive percentage.
+      double slower =
+          (now.isHigherBetter() ? then.score - now.score : now.score - then.score)
+              * 100
+              / then.score;
+      // The worst the baseline could be, and the best the current score could be.
+      boolean overlaps =
+          now.isHigherBetter()
+              ? now.score + now.error >= then.score - then.error
+              : now.score - now.error <= then.score + then.error;
+      if (slower > threshold && !overlaps) {
+        regressions.add(
+            String.format(
+                Locale.ROOT,
+                "REGRESSION %s: %s -> %s (%.1f%% slower)",
+                now.key,
+                then,
+                now,
+                slower));
+      }
+    }
+    return regressions;
+  }
+
+  /** Just enough of a JSON reader for the files written by JMH. */
+  static class JsonReader {
+    private final String json;
+    private int pos;
+
+    JsonReader(String json) {
+      this.json = json;
+    }
+
+    /**
+     * @return the value, as a map, list, string, double, boolean or null.
+     * @throws IllegalArgumentException if the JSON is invalid.
+     */
+    Object read() {
+      Object value = readValue();
+      skipWhitespace();
+      if (pos != json.length()) {
+        throw error("Unexpected content");
+      }
+      return value;
+    }
+
+    private IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(message + " at position " + pos);
+    }
+
+    private void skipWhitespace() {
+      while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+        pos++;
+      }
+    }
+
+    private char peek() {
+      skipWhitespace();
+      if (pos >= json.length()) {
+        throw error("Unexpected end");
+      }
+      return json.charAt(pos);
+    }
+
+    private void expect(char c) {
+      if (!consume(c)) {
+        throw error("Expected '" + c + "'");
+      }
+    }
+
+    /**
+     * @return whether the next character was the expected one, and skips it if it was.
+     */
+    private boolean consume(char c) {
+      if (peek() == c) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
+
+    private Object readValue() {
+      char c = peek();
+      switch (c) {
+        case '{':
+          Map<String, Object> map = new LinkedHashMap<>();
+          pos++;
+          if (consume('}')) {
+            return map;
+          }
+          do {
+            String name = readString();
+            expect(':');
+            map.put(name, readValue());
+          } while (consume(','));
+          expect('}');
+          return map;
+        case '[':
+          List<Object> list = new ArrayList<>();
+          pos++;
+          if (consume(']')) {
+            return list;
+          }
+          do {
+            list.add(readValue());
+          } while (consume(','));
+          expect(']');
+          return list;
+        case '"':
+          return readString();
+        default:
+          for (String literal : new String[] {"true", "false", "null"}) {
+            if (json.startsWith(literal, pos)) {
+              pos += literal.length();
+              return literal.equals("null") ? null : Boolean.valueOf(literal);
+            }
+          }
+          int start = pos;
+          while (pos < json.length() && "+-.eE0123456789".indexOf(json.charAt(pos)) >= 0) {
+            pos++;
+          }
+          try {
+            return Double.parseDouble(json.substring(start, pos));
+          } catch (NumberFormatException e) {
+            pos = start;
+            throw error("Unexpected value");
+          }
+      }
+    }
+
+    private String readString() {
+      expect('"');
+      StringBuilder sb = new StringBuilder();
+      while (pos < json.length()) {
+        char c = json.charAt(pos++);
+        if (c == '"') {
+          return sb.toString();
+        }
+        if (c == '\\') {
+          char escaped = json.charAt(pos++);
+          switch (escaped) {
+            case 'n':
+              sb.append('\n');
+              break;
+            case 't':
+              sb.append('\t');
+              break;
+            case 'r':
+              sb.append('\r');
+              break;
+            case 'b':
+              sb.append('\b');
+              break;
+            case 'f':
+              sb.append('\f');
+              break;
+            case 'u':
+              sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+              pos += 4;
+              break;
+            default:
+              sb.append(escaped);
+          }
+        } else {
+          sb.append(c);
+        }
+      }
+      throw error("Unterminated string");
+    }
+  }
+}
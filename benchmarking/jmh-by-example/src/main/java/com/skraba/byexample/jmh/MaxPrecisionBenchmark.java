@@ -3,6 +3,8 @@ package com.skraba.byexample.jmh;
 import java.math.BigInteger;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.infra.Blackhole;
 
 /**
@@ -25,6 +27,11 @@ import org.openjdk.jmh.infra.Blackhole;
  * MaxPrecisionBenchmark.maxPrecisionLogPowerRuleRound  avgt   15      7.441 ±    0.189  ns/op
  * MaxPrecisionBenchmark.maxPrecisionOriginalAvro       avgt   15     25.112 ±    0.374  ns/op
  * </pre>
+ *
+ * <p>Since the result only depends on the size, it can also be precomputed into a table for the
+ * sizes that are likely to be used. When many sizes need to be calculated at once (like all of the
+ * decimal fields in a schema), the batch methods calculate them in a simple loop over arrays that
+ * the JIT compiler can unroll and vectorize.
  */
 public class MaxPrecisionBenchmark {
 
@@ -32,6 +39,18 @@ public class MaxPrecisionBenchmark {
 
   public static final long NUMERATOR_40_BITS = getApproxNumerator(40);
 
+  /** The sizes that are precomputed in {@link #MAX_PRECISION_TABLE}. */
+  public static final int MAX_TABLE_SIZE = 8 * 1024;
+
+  /** The maximum precision for every size less than {@link #MAX_TABLE_SIZE}. */
+  private static final short[] MAX_PRECISION_TABLE = new short[MAX_TABLE_SIZE];
+
+  static {
+    for (int size = 0; size < MAX_TABLE_SIZE; size++) {
+      MAX_PRECISION_TABLE[size] = (short) getMaxPrecisionLogPowerRule(size);
+    }
+  }
+
   /**
    * The original Avro implementation is a straight translation of getting the log10 of the largest
    * positive magnitude possible with the twos complement binary number that can fit in the buffer.
@@ -93,6 +112,60 @@ public class MaxPrecisionBenchmark {
     return BigInteger.valueOf(1).shiftLeft(8 * size - 1).toString().length() - 1;
   }
 
+  /**
+   * Looks up the precision in a precomputed table, which is only as accurate as the method used to
+   * build it, {@link #getMaxPrecisionLogPowerRule(int)}.
+   *
+   * @param size the number of bytes available to express the number.
+   * @return the number of decimal digits that can fit in the bytes.
+   */
+  public static long getMaxPrecisionWithTable(int size) {
+    return size < MAX_TABLE_SIZE
+        ? MAX_PRECISION_TABLE[size]
+        : getMaxPrecisionWithApprox(size, NUMERATOR_40_BITS, 40);
+  }
+
+  /**
+   * The same as {@link #getMaxPrecisionWithApprox(long, long, int)} for many sizes at once.
+   *
+   * @param sizes the number of bytes available to express each number.
+   * @param precisions the array to fill with the number of decimal digits for each size.
+   * @param length the number of sizes to calculate.
+   */
+  public static void getMaxPrecisionWithApprox(int[] sizes, long[] precisions, int length) {
+    for (int i = 0; i < length; i++) {
+      precisions[i] = (8L * sizes[i] - 1) * NUMERATOR_40_BITS >> 40;
+    }
+  }
+
+  /**
+   * The same as {@link #getMaxPrecisionWithTable(int)} for many sizes at once.
+   *
+   * @param sizes the number of bytes available to express each number.
+   * @param precisions the array to fill with the number of decimal digits for each size.
+   * @param length the number of sizes to calculate.
+   */
+  public static void getMaxPrecisionWithTable(int[] sizes, long[] precisions, int length) {
+    for (int i = 0; i < length; i++) {
+      precisions[i] = getMaxPrecisionWithTable(sizes[i]);
+    }
+  }
+
+  /** The sizes for the batch benchmarks, and space for the results. */
+  @State(Scope.Benchmark)
+  public static class Batch {
+
+    final int[] sizes = new int[1024 * 1024];
+    final long[] precisions = new long[1024 * 1024];
+
+    public Batch() {
+      for (int i = 0; i < sizes.length; i++) {
+        // The table only holds the smaller sizes.
+        sizes[i] = i & (MAX_TABLE_SIZE - 1);
+      }
+    }
+  }
+
   @OperationsPerInvocation(1024 * 1024)
   @Benchmark
   public void maxPrecisionOriginalAvro(Blackhole bh) {
@@ -103,6 +176,7 @@ public class MaxPrecisionBenchmark {
   }
 
   @OperationsPerInvocation(1024 * 1024)
+  @AllocationFree
   @Benchmark
   public void maxPrecisionLogPowerRuleRound(Blackhole bh) {
     for (int size = 0; size < 1024 * 1024; size++) {
@@ -111,6 +185,7 @@ public class MaxPrecisionBenchmark {
   }
 
   @OperationsPerInvocation(1024 * 1024)
+  @AllocationFree
   @Benchmark
   public void maxPrecisionLogPowerRuleCast(Blackhole bh) {
     for (int size = 0; size < 1024 * 1024; size++) {
@@ -119,6 +194,7 @@ public class MaxPrecisionBenchmark {
   }
 
   @OperationsPerInvocation(1024 * 1024)
+  @AllocationFree
   @Benchmark
   public void maxPrecisionLogApprox40bits(Blackhole bh) {
     for (int size = 0; size < 1024 * 1024; size++)
@@ -133,4 +209,30 @@ public class MaxPrecisionBenchmark {
       bh.consume(getMaxPrecisionWithBigInteger(size));
     }
   }
+
+  @OperationsPerInvocation(1024 * 1024)
+  @AllocationFree
+  @Benchmark
+  public void maxPrecisionTable(Blackhole bh) {
+    // The table only holds the smaller sizes.
+    for (int size = 0; size < 1024 * 1024; size++) {
+      bh.consume(getMaxPrecisionWithTable(size & (MAX_TABLE_SIZE - 1)));
+    }
+  }
+
+  @OperationsPerInvocation(1024 * 1024)
+  @AllocationFree
+  @Benchmark
+  public long[] maxPrecisionBatchApprox40bits(Batch batch) {
+    getMaxPrecisionWithApprox(batch.sizes, batch.precisions, batch.sizes.length);
+    return batch.precisions;
+  }
+
+  @OperationsPerInvocation(1024 * 1024)
+  @AllocationFree
+  @Benchmark
+  public long[] maxPrecisionBatchTable(Batch batch) {
+    getMaxPrecisionWithTable(batch.sizes, batch.precisions, batch.sizes.length);
+    return batch.precisions;
+  }
 }
@@ -0,0 +1,116 @@
+package com.skraba.byexample.jmh;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * An immutable String to String map that is stored entirely outside of the Java heap, in direct
+ * byte buffers.
+ *
+ * <p>The table has one 8-byte slot for every entry (the hash code of the key and the position of
+ * the entry) using open addressing, and the entries are stored in a separate buffer as the lengths,
+ * the key and the value, one byte per character. Only ISO-8859-1 strings can be stored.
+ *
+ * <p>None of the entries are visible to the garbage collector, but every lookup needs to compare
+ * the key byte by byte, and create a new String for the value.
+ */
+public class OffHeapMap {
+
+  /** The size of a slot in the table: the hash code and the position of the entry plus one. */
+  private static final int SLOT = 2 * Integer.BYTES;
+
+  /** The size of the header for an entry in the data: the key length and value length. */
+  private static final int HEADER = 2 * Short.BYTES;
+
+  private final ByteBuffer table;
+  private final ByteBuffer data;
+  private final int mask;
+
+  /**
+   * @param entries The entries to put in the map, which must not have any null keys or values.
+   * @throws IllegalArgumentException if any key or value can't be stored in ISO-8859-1, or is
+   *     longer than a short.
+   */
+  public OffHeapMap(Map<String, String> entries) {
+    int slots = Integer.highestOneBit(Math.max(1, entries.size() * 2 - 1)) * 2;
+    this.mask = slots - 1;
+    this.table = ByteBuffer.allocateDirect(slots * SLOT);
+    long size = 0;
+    for (Map.Entry<String, String> e : entries.entrySet()) {
+      size += HEADER + e.getKey().length() + e.getValue().length();
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The entries are too large: " + size);
+    }
+    this.data = ByteBuffer.allocateDirect((int) size);
+
+    for (Map.Entry<String, String> e : entries.entrySet()) {
+      int position = data.position();
+      data.putShort(toShort(e.getKey().length()));
+      data.putShort(toShort(e.getValue().length()));
+      data.put(toBytes(e.getKey()));
+      data.put(toBytes(e.getValue()));
+      int h = e.getKey().hashCode();
+      int i = slot(h);
+      while (table.getInt(i * SLOT + Integer.BYTES) != 0) {
+        i = (i + 1) & mask;
+      }
+      table.putInt(i * SLOT, h);
+      table.putInt(i * SLOT + Integer.BYTES, position + 1);
+    }
+  }
+
+  private static short toShort(int length) {
+    if (length > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("The string is too long: " + length);
+    }
+    return (short) length;
+  }
+
+  private static byte[] toBytes(String s) {
+    if (!StandardCharsets.ISO_8859_1.newEncoder().canEncode(s)) {
+      throw new IllegalArgumentException("Only ISO-8859-1 strings can be stored: " + s);
+    }
+    return s.getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  private int slot(int hash) {
+    return (hash * 0x9E3779B9) >>> Integer.numberOfLeadingZeros(mask);
+  }
+
+  /**
+   * @param key The key to find.
+   * @return the value for the key, or null if it isn't in the map.
+   */
+  public String get(String key) {
+    int h = key.hashCode();
+    for (int i = slot(h); ; i = (i + 1) & mask) {
+      int position = table.getInt(i * SLOT + Integer.BYTES) - 1;
+      if (position < 0) {
+        return null;
+      }
+      if (table.getInt(i * SLOT) == h && matches(position, key)) {
+        int keyLength = data.getShort(position);
+        byte[] value = new byte[data.getShort(position + Short.BYTES)];
+        data.get(position + HEADER + keyLength, value);
+        return new String(value, StandardCharsets.ISO_8859_1);
+      }
+    }
+  }
+
+  /**
+   * @return whether the entry at the position has the given key.
+   */
+  private boolean matches(int position, String key) {
+    if (data.getShort(position) != key.length()) {
+      return false;
+    }
+    for (int j = 0; j < key.length(); j++) {
+      if ((data.get(position + HEADER + j) & 0xFF) != key.charAt(j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
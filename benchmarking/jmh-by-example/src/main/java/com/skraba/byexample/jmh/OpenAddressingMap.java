@@ -0,0 +1,85 @@
+package com.skraba.byexample.jmh;
+
+/**
+ * A minimal String to String map using open addressing with linear probing, storing the keys and
+ * values directly in two parallel arrays.
+ *
+ * <p>Unlike {@link java.util.HashMap}, there are no entry objects to follow, so a lookup that hits
+ * usually only touches one slot in each array. The table is never more than half full.
+ */
+public class OpenAddressingMap {
+
+  private final String[] keys;
+  private final String[] values;
+
+  /** Used to turn a hash code into a slot with Fibonacci hashing. */
+  private final int shift;
+
+  private int size;
+
+  /**
+   * @param expected The number of entries that will be put in the map. The table is never resized,
+   *     so no more than this (rounded up to a power of two) can be added.
+   */
+  public OpenAddressingMap(int expected) {
+    int bits = 32 - Integer.numberOfLeadingZeros(Math.max(2, expected * 2 - 1));
+    this.keys = new String[1 << bits];
+    this.values = new String[1 << bits];
+    this.shift = 32 - bits;
+  }
+
+  /**
+   * @return the first slot to check for a key.
+   */
+  private int slot(String key) {
+    return (key.hashCode() * 0x9E3779B9) >>> shift;
+  }
+
+  /**
+   * @param key The key, which must not be null.
+   * @param value The value for the key.
+   * @throws IllegalStateException if the table is already half full.
+   */
+  public void put(String key, String value) {
+    int mask = keys.length - 1;
+    for (int i = slot(key); ; i = (i + 1) & mask) {
+      if (keys[i] == null) {
+        if (size * 2 >= keys.length) {
+          throw new IllegalStateException("The map is full: " + size);
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        return;
+      }
+      if (keys[i].equals(key)) {
+        values[i] = value;
+        return;
+      }
+    }
+  }
+
+  /**
+   * @param key The key to find.
+   * @return the value for the key, or null if it isn't in the map.
+   */
+  public String get(String key) {
+    int mask = keys.length - 1;
+    for (int i = slot(key); ; i = (i + 1) & mask) {
+      String k = keys[i];
+      if (k == null) {
+        return null;
+      }
+      if (k.equals(key)) {
+        return values[i];
+      }
+    }
+  }
+
+  /**
+   * @return the number of entries in the map.
+   */
+  public int size() {
+    return size;
+  }
+}
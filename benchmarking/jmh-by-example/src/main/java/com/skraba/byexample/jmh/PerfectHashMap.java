@@ -0,0 +1,124 @@
+package com.skraba.byexample.jmh;
+
+import java.util.Map;
+
+/**
+ * An immutable String to String map for a fixed set of keys, using a perfect hash function built
+ * with the "hash and displace" technique.
+ *
+ * <p>The keys are split into small buckets, and every bucket gets a displacement that moves all of
+ * its keys into empty slots. Looking up a key always checks exactly one slot: there is never a
+ * collision to resolve, but the key still needs to be compared in case it isn't in the map.
+ *
+ * <p>{@link String#hashCode()} can't be used, since two different keys can have the same hash code,
+ * so this uses a 64-bit FNV-1a hash that needs to be calculated for every lookup.
+ *
+ * @link <a href="https://cmph.sourceforge.net/papers/esa09.pdf">Hash, displace, and compress</a>
+ */
+public class PerfectHashMap {
+
+  /** Give up building the map if a bucket can't be placed after this many displacements. */
+  private static final int MAX_DISPLACEMENT = 1 << 20;
+
+  private final int[] displacements;
+  private final String[] keys;
+  private final String[] values;
+
+  /**
+   * @param entries The entries to put in the map, which must not have any null keys.
+   * @throws IllegalStateException if the perfect hash function can't be found.
+   */
+  public PerfectHashMap(Map<String, String> entries) {
+    int n = entries.size();
+    int buckets = Integer.highestOneBit(Math.max(1, n / 3)) * 2;
+    int slots = Integer.highestOneBit(Math.max(1, n + n / 4)) * 2;
+    this.displacements = new int[buckets];
+    this.keys = new String[slots];
+    this.values = new String[slots];
+
+    // Group the hashes of the keys by bucket, counting sort style.
+    String[] allKeys = entries.keySet().toArray(new String[0]);
+    long[] hashes = new long[n];
+    int[] bucketStart = new int[buckets + 1];
+    for (int i = 0; i < n; i++) {
+      hashes[i] = hash(allKeys[i]);
+      bucketStart[bucket(hashes[i], buckets) + 1]++;
+    }
+    int maxBucketSize = 0;
+    for (int b = 0; b < buckets; b++) {
+      maxBucketSize = Math.max(maxBucketSize, bucketStart[b + 1]);
+      bucketStart[b + 1] += bucketStart[b];
+    }
+    int[] members = new int[n];
+    int[] filled = bucketStart.clone();
+    for (int i = 0; i < n; i++) {
+      members[filled[bucket(hashes[i], buckets)]++] = i;
+    }
+
+    // Place the largest buckets first, while there is the most room.
+    int[] placed = new int[maxBucketSize];
+    for (int size = maxBucketSize; size > 0; size--) {
+      for (int b = 0; b < buckets; b++) {
+        if (bucketStart[b + 1] - bucketStart[b] != size) {
+          continue;
+        }
+        int d = 0;
+        NEXT_DISPLACEMENT:
+        for (; ; d++) {
+          if (d >= MAX_DISPLACEMENT) {
+            throw new IllegalStateException("Unable to find a perfect hash for " + n + " keys");
+          }
+          for (int j = 0; j < size; j++) {
+            int slot = slot(hashes[members[bucketStart[b] + j]], d, slots);
+            if (keys[slot] != null) {
+              continue NEXT_DISPLACEMENT;
+            }
+            for (int k = 0; k < j; k++) {
+              if (placed[k] == slot) {
+                continue NEXT_DISPLACEMENT;
+              }
+            }
+            placed[j] = slot;
+          }
+          break;
+        }
+        displacements[b] = d;
+        for (int j = 0; j < size; j++) {
+          String key = allKeys[members[bucketStart[b] + j]];
+          keys[placed[j]] = key;
+          values[placed[j]] = entries.get(key);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return a 64-bit FNV-1a hash of the characters in the key.
+   */
+  private static long hash(String key) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      h = (h ^ key.charAt(i)) * 0x100000001b3L;
+    }
+    return h;
+  }
+
+  private static int bucket(long hash, int buckets) {
+    return (int) (hash >>> 32) & (buckets - 1);
+  }
+
+  private static int slot(long hash, int displacement, int slots) {
+    long h = (hash + displacement) * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & (slots - 1);
+  }
+
+  /**
+   * @param key The key to find.
+   * @return the value for the key, or null if it isn't in the map.
+   */
+  public String get(String key) {
+    long h = hash(key);
+    int slot = slot(h, displacements[bucket(h, displacements.length)], keys.length);
+    return key.equals(keys[slot]) ? values[slot] : null;
+  }
+}
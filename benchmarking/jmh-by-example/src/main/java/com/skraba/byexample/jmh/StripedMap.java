@@ -0,0 +1,66 @@
+package com.skraba.byexample.jmh;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A thread-safe String to String map that splits the entries into a fixed number of independent
+ * {@link HashMap}s, each with its own lock.
+ *
+ * <p>Threads only contend when they access keys in the same stripe, so with enough stripes most
+ * reads and writes can happen in parallel. This is how {@code ConcurrentHashMap} worked before Java
+ * 8.
+ */
+public class StripedMap {
+
+  private final Map<String, String>[] stripes;
+
+  /**
+   * @param stripes The number of stripes, which is rounded up to a power of two.
+   */
+  @SuppressWarnings("unchecked")
+  public StripedMap(int stripes) {
+    this.stripes = new Map[Integer.highestOneBit(Math.max(1, stripes * 2 - 1))];
+    for (int i = 0; i < this.stripes.length; i++) {
+      this.stripes[i] = new HashMap<>();
+    }
+  }
+
+  /**
+   * @return the stripe that holds the key, which is also the lock for the stripe.
+   */
+  private Map<String, String> stripe(String key) {
+    int h = key.hashCode();
+    return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+  }
+
+  /**
+   * @param key The key to find.
+   * @return the value for the key, or null if it isn't in the map.
+   */
+  public String get(String key) {
+    Map<String, String> stripe = stripe(key);
+    synchronized (stripe) {
+      return stripe.get(key);
+    }
+  }
+
+  /**
+   * @param key The key, which must not be null.
+   * @param value The value for the key.
+   * @return the previous value for the key, or null if it wasn't in the map.
+   */
+  public String put(String key, String value) {
+    Map<String, String> stripe = stripe(key);
+    synchronized (stripe) {
+      return stripe.put(key, value);
+    }
+  }
+
+  /**
+   * @return the number of stripes.
+   */
+  public int getStripes() {
+    return stripes.length;
+  }
+}
@@ -0,0 +1,160 @@
+package com.skraba.byexample.jmh;
+
+import com.skraba.byexample.benchmarking.toprofile.Constellation;
+import com.skraba.byexample.benchmarking.toprofile.HappyNumbers;
+import com.skraba.byexample.benchmarking.toprofile.IntBatchConsumer;
+import com.skraba.byexample.benchmarking.toprofile.SegmentedSieve;
+import com.skraba.byexample.benchmarking.toprofile.ToProfileGo;
+import com.skraba.byexample.benchmarking.toprofile.WheelSieve;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks on the prime number sieves in {@link ToProfileGo}, the application that is used as an
+ * example for profiling.
+ *
+ * <p>The original trial sieve is much too slow for large numbers, so it has its own, smaller set of
+ * sizes. All of the other strategies are benchmarked from ten thousand to a hundred million, with
+ * every filter, both consuming every accepted prime (like {@code --print}) and only counting them
+ * (like {@code --count}).
+ *
+ * <p>Adding the GC profiler shows how much memory is allocated for each operation, where the trial
+ * sieve boxes every prime and the other strategies should allocate almost nothing.
+ *
+ * <pre>
+ * byexample_go_jmh -f 1 -wi 2 -i 5 -bm AverageTime -tu ms ToProfileBenchmark -p max=1000000
+ * byexample_go_jmh -f 1 -wi 2 -i 5 -tu s ToProfileBenchmark.isHappy -prof gc
+ * # The number of threads for the segmented strategies.
+ * byexample_go_jmh -f 1 -wi 2 -i 5 -tu s ToProfileBenchmark.count -p threads=1,4
+ * </pre>
+ */
+public class ToProfileBenchmark {
+
+  /** The number of candidates checked for happiness in each invocation. */
+  public static final int HAPPY_CANDIDATES = 1024 * 1024;
+
+  /** The filters to apply to the primes, as they would be specified on the command line. */
+  public static class Filters {
+
+    final boolean onlySuper;
+    final boolean onlyHappy;
+    final Set<Constellation> constellations;
+
+    /**
+     * @param filters A comma-separated list of filters (super, happy, sexy, twin, cousin) or none.
+     */
+    Filters(String filters) {
+      List<String> names = Arrays.asList(filters.split(","));
+      onlySuper = names.contains("super");
+      onlyHappy = names.contains("happy");
+      constellations =
+          Constellation.of(
+              names.contains("twin"), names.contains("cousin"), names.contains("sexy"));
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class TrialState {
+
+    @Param({"10000", "100000"})
+    int max;
+
+    @Param({"none", "super", "happy", "sexy", "super,happy,sexy"})
+    String filters;
+
+    Filters f;
+
+    @Setup
+    public void setupFilters() {
+      f = new Filters(filters);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class CountState {
+
+    @Param({"10000", "1000000", "100000000"})
+    int max;
+
+    @Param({"segmented", "wheel"})
+    String strategy;
+
+    @Param({"1"})
+    int threads;
+
+    SegmentedSieve sieve;
+
+    @Setup
+    public void setupSieve() {
+      sieve =
+          ToProfileGo.Strategy.of(strategy) == ToProfileGo.Strategy.WHEEL
+              ? new WheelSieve(max)
+              : new SegmentedSieve(max);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class SieveState extends CountState {
+
+    @Param({"none", "super", "happy", "sexy", "twin,cousin", "super,happy,sexy"})
+    String filters;
+
+    Filters f;
+
+    @Setup
+    public void setupFilters() {
+      f = new Filters(filters);
+    }
+  }
+
+  @Benchmark
+  public int trial(TrialState state, Blackhole bh) {
+    return ToProfileGo.sieveOfEratosthenes(
+            state.max, state.f.onlySuper, state.f.onlyHappy, state.f.constellations, bh::consume)
+        .size();
+  }
+
+  @Benchmark
+  public int sieve(SieveState state, Blackhole bh) {
+    return ToProfileGo.sieveOfEratosthenesInBatches(
+        state.sieve,
+        state.threads,
+        state.f.onlySuper,
+        state.f.onlyHappy,
+        state.f.constellations,
+        IntBatchConsumer.of(bh::consume));
+  }
+
+  @Benchmark
+  public int count(CountState state) {
+    // Without a consumer, the primes are only counted and never filtered.
+    return ToProfileGo.sieveOfEratosthenesInBatches(
+        state.sieve, state.threads, false, false, false, null);
+  }
+
+  @OperationsPerInvocation(HAPPY_CANDIDATES)
+  @AllocationFree
+  @Benchmark
+  public void isHappy(Blackhole bh) {
+    for (int n = 1; n <= HAPPY_CANDIDATES; n++) {
+      bh.consume(ToProfileGo.isHappy(n));
+    }
+  }
+
+  @OperationsPerInvocation(HAPPY_CANDIDATES)
+  @AllocationFree
+  @Benchmark
+  public void isHappyTable(Blackhole bh) {
+    for (int n = 1; n <= HAPPY_CANDIDATES; n++) {
+      bh.consume(HappyNumbers.isHappy(n));
+    }
+  }
+}
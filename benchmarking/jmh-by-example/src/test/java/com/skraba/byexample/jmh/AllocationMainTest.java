@@ -0,0 +1,83 @@
+package com.skraba.byexample.jmh;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/** Unit tests for {@link AllocationMain}. */
+public class AllocationMainTest {
+
+  /**
+   * @return options to run a benchmark very quickly in this JVM.
+   */
+  private static Options quick(String include) {
+    return new OptionsBuilder()
+        .include(include)
+        .forks(0)
+        .warmupIterations(0)
+        .measurementIterations(1)
+        .measurementTime(TimeValue.milliseconds(200))
+        .mode(Mode.AverageTime)
+        .timeUnit(TimeUnit.NANOSECONDS)
+        .build();
+  }
+
+  @Test
+  public void testIsAllocationFree() {
+    assertThat(AllocationMain.isAllocationFree(HashBenchmark.class.getName() + ".array"), is(true));
+    assertThat(
+        AllocationMain.isAllocationFree(HashBenchmark.class.getName() + ".scaledOffHeap"),
+        is(false));
+    assertThat(
+        AllocationMain.isAllocationFree(ToProfileBenchmark.class.getName() + ".isHappyTable"),
+        is(true));
+    assertThat(
+        AllocationMain.isAllocationFree(ToProfileBenchmark.class.getName() + ".count"), is(false));
+    assertThat(AllocationMain.isAllocationFree("com.skraba.Missing.method"), is(false));
+    assertThat(AllocationMain.isAllocationFree("noDots"), is(false));
+  }
+
+  @Test
+  public void testRunAllocationFree() throws RunnerException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int exit =
+        AllocationMain.run(
+            quick("HashBenchmark.array$"),
+            AllocationMain.DEFAULT_TOLERANCE,
+            new PrintStream(out, true, StandardCharsets.UTF_8));
+    String report = out.toString(StandardCharsets.UTF_8);
+    assertThat(report, exit, is(0));
+    assertThat(report, containsString("HashBenchmark.array "));
+    assertThat(report, containsString("(allocation-free)"));
+    assertThat(report, not(containsString("ALLOCATION")));
+  }
+
+  @Test
+  public void testUsage() {
+    assertThat(AllocationMain.go("--tolerance=abc"), is(AllocationMain.EXIT_USAGE));
+    // Not a problem with the command line, but there aren't any benchmarks to run.
+    assertThat(AllocationMain.go("NoSuchBenchmark"), is(AllocationMain.EXIT_FAILURE));
+  }
+
+  @Test
+  public void testRunFailsWhenAllocating() throws RunnerException {
+    // No benchmark can allocate less than nothing.
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int exit =
+        AllocationMain.run(
+            quick("HashBenchmark.array$"), -1, new PrintStream(out, true, StandardCharsets.UTF_8));
+    String report = out.toString(StandardCharsets.UTF_8);
+    assertThat(report, exit, is(AllocationMain.EXIT_ALLOCATION));
+    assertThat(report, containsString("ALLOCATION HashBenchmark.array: "));
+  }
+}
@@ -0,0 +1,63 @@
+package com.skraba.byexample.jmh;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Checks the maps and the mix of operations in {@link ContentionBenchmark}. */
+public class ContentionBenchmarkTest {
+
+  @Test
+  public void testMix() {
+    ContentionBenchmark.Ops ops = new ContentionBenchmark.Ops();
+    ContentionBenchmark.SharedKeys shared = new ContentionBenchmark.SharedKeys();
+    shared.keys = 1000;
+    for (int writes : new int[] {0, 5, 50, 100}) {
+      shared.writes = writes;
+      int count = 0;
+      for (int i = 0; i < 100_000; i++) {
+        int op = ops.nextOp(shared);
+        assertThat(op, allOf(greaterThanOrEqualTo(-1000), lessThan(1000)));
+        if (op < 0) count++;
+      }
+      assertThat((double) count / 1000, closeTo(writes, 1));
+    }
+  }
+
+  @Test
+  public void testMaps() throws InterruptedException {
+    ContentionBenchmark.CopyOnWriteMap copyOnWrite = new ContentionBenchmark.CopyOnWriteMap();
+    copyOnWrite.keys = 100;
+    copyOnWrite.setup();
+    ContentionBenchmark.StripedLockMap striped = new ContentionBenchmark.StripedLockMap();
+    striped.keys = 100;
+    striped.setup();
+    assertThat(striped.map.getStripes(), is(64));
+    assertThat(new StripedMap(5).getStripes(), is(8));
+
+    // Many threads writing different keys at the same time.
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      final int start = t;
+      threads.add(
+          new Thread(
+              () -> {
+                for (int i = start; i < 100; i += 4) {
+                  copyOnWrite.put("key" + i, "new" + i);
+                  striped.map.put("key" + i, "new" + i);
+                }
+              }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread t : threads) t.join();
+
+    for (int i = 0; i < 100; i++) {
+      assertThat(copyOnWrite.map.get("key" + i), is("new" + i));
+      assertThat(striped.map.get("key" + i), is("new" + i));
+    }
+    assertThat(copyOnWrite.map.size(), is(100));
+  }
+}
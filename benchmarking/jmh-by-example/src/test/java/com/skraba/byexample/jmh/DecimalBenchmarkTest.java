@@ -0,0 +1,69 @@
+package com.skraba.byexample.jmh;
+
+import static com.skraba.byexample.jmh.DecimalBenchmark.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Checks that all of the encodings in {@link DecimalBenchmark} round trip. */
+public class DecimalBenchmarkTest {
+
+  @Test
+  public void testFixedSize() {
+    assertThat(getFixedSize(1), is(1));
+    assertThat(getFixedSize(2), is(1));
+    assertThat(getFixedSize(3), is(2));
+    assertThat(getFixedSize(18), is(8));
+    assertThat(getFixedSize(19), is(9));
+    assertThat(getFixedSize(38), is(16));
+  }
+
+  @Test
+  public void testRoundTrip() {
+    Random random = new Random(0);
+    for (int precision = 1; precision <= 80; precision++) {
+      byte[] fixed = new byte[getFixedSize(precision)];
+      byte[] fixedWithLong = new byte[fixed.length];
+      for (int scale : new int[] {0, 2, 10}) {
+        for (int i = 0; i < 100; i++) {
+          BigDecimal value = DecimalBenchmark.Decimals.random(random, precision, scale);
+          assertThat(value.precision(), is(precision));
+          assertThat(value.scale(), is(scale));
+
+          byte[] encoded = encode(value);
+          assertThat(decode(encoded, scale), is(value));
+          assertThat(decodeWithLong(encoded, scale), is(value));
+
+          encodeFixed(value, fixed);
+          encodeFixedWithLong(value, fixedWithLong);
+          assertThat(fixedWithLong, is(fixed));
+          assertThat(decode(fixed, scale), is(value));
+          assertThat(decodeWithLong(fixed, scale), is(value));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTooLarge() {
+    assertThrows(
+        IllegalArgumentException.class, () -> encodeFixed(new BigDecimal("128"), new byte[1]));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> encodeFixedWithLong(new BigDecimal("128"), new byte[1]));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> encodeFixedWithLong(new BigDecimal("-32.769"), new byte[2]));
+    encodeFixedWithLong(new BigDecimal("-32.768"), new byte[2]);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> encodeFixedWithLong(new BigDecimal("12345678901234567890"), new byte[8]));
+    assertThrows(NumberFormatException.class, () -> decodeWithLong(new byte[0], 0));
+    assertThat(decodeWithLong(new byte[] {-1}, 0), is(BigDecimal.valueOf(-1)));
+    assertThat(decodeWithLong(new byte[] {0, -128}, 1), is(new BigDecimal("12.8")));
+  }
+}
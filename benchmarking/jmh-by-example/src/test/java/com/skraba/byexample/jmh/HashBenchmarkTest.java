@@ -0,0 +1,76 @@
+package com.skraba.byexample.jmh;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/** Checks that all of the lookup structures in {@link HashBenchmark} return the same values. */
+public class HashBenchmarkTest {
+
+  @Test
+  public void testFixedLookup() {
+    HashBenchmark.HashLookup hash = new HashBenchmark.HashLookup();
+    HashBenchmark.FixedLookup fixed = new HashBenchmark.FixedLookup();
+    for (String name : fixed.names) {
+      assertThat(fixed.getSwitch(name), is(hash.get(name)));
+      assertThat(fixed.getPerfect(name), is(hash.get(name)));
+    }
+    for (HashBenchmark.Digit d : HashBenchmark.Digit.values()) {
+      assertThat(fixed.map.get(d), is(hash.get(fixed.names[d.ordinal()])));
+    }
+    for (String missing : new String[] {"", "on", "ten", "zeros", "nin"}) {
+      assertThat(fixed.getSwitch(missing), nullValue());
+      assertThat(fixed.getPerfect(missing), nullValue());
+    }
+  }
+
+  @Test
+  public void testScaledLookup() {
+    for (int keys : new int[] {1, 10, 1000, 100_000}) {
+      HashBenchmark.ScaledKeys scaled = new HashBenchmark.ScaledKeys();
+      scaled.keys = keys;
+      scaled.distribution = "skewed";
+      Map<String, String> entries = scaled.generate();
+      assertThat(entries.size(), is(keys));
+
+      OpenAddressingMap open = new OpenAddressingMap(keys);
+      entries.forEach(open::put);
+      assertThat(open.size(), is(keys));
+      PerfectHashMap perfect = new PerfectHashMap(entries);
+      OffHeapMap offHeap = new OffHeapMap(entries);
+
+      for (Map.Entry<String, String> e : entries.entrySet()) {
+        assertThat(open.get(e.getKey()), is(e.getValue()));
+        assertThat(perfect.get(e.getKey()), is(e.getValue()));
+        assertThat(offHeap.get(e.getKey()), is(e.getValue()));
+      }
+      for (String query : scaled.queries) {
+        assertThat(perfect.get(query), is(entries.get(query)));
+      }
+      // Keys are base-36 digits, and never have a dash.
+      for (String missing : new String[] {"-", "-0", "a-b"}) {
+        assertThat(open.get(missing), nullValue());
+        assertThat(perfect.get(missing), nullValue());
+        assertThat(offHeap.get(missing), nullValue());
+      }
+    }
+  }
+
+  @Test
+  public void testLimits() {
+    OpenAddressingMap open = new OpenAddressingMap(1);
+    open.put("a", "1");
+    open.put("a", "2");
+    assertThat(open.get("a"), is("2"));
+    open.put("b", "3");
+    assertThat(open.size(), is(2));
+    assertThrows(IllegalStateException.class, () -> open.put("c", "4"));
+
+    assertThrows(IllegalArgumentException.class, () -> new OffHeapMap(Map.of("☺", "smile")));
+    assertThat(new OffHeapMap(Map.of("café", "été")).get("café"), is("été"));
+    assertThat(new PerfectHashMap(Map.of()).get("a"), nullValue());
+  }
+}
@@ -0,0 +1,166 @@
+package com.skraba.byexample.jmh;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link JmhRegressionMain}. */
+public class JmhRegressionMainTest {
+
+  /**
+   * @return a JMH result file with the two benchmarks.
+   */
+  private static String result(double hash, double hashError, double array) {
+    return String.join(
+        "\n",
+        "[",
+        "  {",
+        "    \"jmhVersion\" : \"1.37\",",
+        "    \"benchmark\" : \"com.skraba.byexample.jmh.HashBenchmark.hash\",",
+        "    \"mode\" : \"avgt\",",
+        "    \"primaryMetric\" : {",
+        "      \"score\" : " + hash + ",",
+        "      \"scoreError\" : " + hashError + ",",
+        "      \"scoreConfidence\" : [ 1.0, 2.0 ],",
+        "      \"scoreUnit\" : \"ns/op\",",
+        "      \"rawData\" : [ [ 1.5e0, -2 ] ]",
+        "    },",
+        "    \"secondaryMetrics\" : { }",
+        "  },",
+        "  {",
+        "    \"benchmark\" : \"com.skraba.byexample.jmh.HashBenchmark.array\",",
+        "    \"mode\" : \"thrpt\",",
+        "    \"params\" : { \"keys\" : \"10\", \"distribution\" : \"uniform\" },",
+        "    \"primaryMetric\" : {",
+        "      \"score\" : " + array + ",",
+        "      \"scoreError\" : \"NaN\",",
+        "      \"scoreUnit\" : \"ops/us\"",
+        "    }",
+        "  }",
+        "]");
+  }
+
+  @Test
+  public void testReadScores(@TempDir Path tmp) throws IOException {
+    Path file = Files.writeString(tmp.resolve("run.json"), result(75.5, 1.25, 100));
+    Map<String, JmhRegressionMain.Score> scores = JmhRegressionMain.readScores(file);
+    assertThat(
+        scores.keySet(),
+        contains(
+            "com.skraba.byexample.jmh.HashBenchmark.array{distribution=uniform, keys=10} thrpt",
+            "com.skraba.byexample.jmh.HashBenchmark.hash avgt"));
+    JmhRegressionMain.Score hash = scores.get("com.skraba.byexample.jmh.HashBenchmark.hash avgt");
+    assertThat(hash.score, is(75.5));
+    assertThat(hash.error, is(1.25));
+    assertThat(hash.isHigherBetter(), is(false));
+    assertThat(hash.toString(), is("75.500 ± 1.250 ns/op"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testJsonReader() {
+    Map<String, Object> json =
+        (Map<String, Object>)
+            new JmhRegressionMain.JsonReader(
+                    " {\"a\\\"\\u0041\" : [true, false, null, -1.5e2, \"x\\ny\"], \"b\": {}} ")
+                .read();
+    assertThat(json.keySet(), contains("a\"A", "b"));
+    assertThat((List<Object>) json.get("a\"A"), contains(true, false, null, -150.0, "x\ny"));
+    assertThat((Map<String, Object>) json.get("b"), anEmptyMap());
+  }
+
+  @Test
+  public void testRegressions(@TempDir Path tmp) throws IOException {
+    Path history = Files.createDirectories(tmp.resolve("history"));
+    Files.writeString(history.resolve("aaa_jvm.json"), result(75.5, 1.25, 100));
+    // Within the error bounds.
+    Files.writeString(history.resolve("bbb_jvm.json"), result(81, 5, 100));
+    // Slower average time, and lower throughput.
+    Files.writeString(history.resolve("ccc_jvm.json"), result(85, 1, 90));
+
+    assertThat(
+        JmhRegressionMain.go(
+            "--history=" + history, "--baseline=aaa_jvm", "--current=bbb_jvm.json"),
+        is(0));
+    assertThat(
+        JmhRegressionMain.go(
+            "--history=" + history, "--baseline=aaa_jvm", "--current=ccc_jvm.json"),
+        is(JmhRegressionMain.EXIT_REGRESSION));
+    // Only the average time is more than 10% worse.
+    List<String> regressions =
+        JmhRegressionMain.findRegressions(
+            JmhRegressionMain.readScores(history.resolve("aaa_jvm.json")),
+            JmhRegressionMain.readScores(history.resolve("ccc_jvm.json")),
+            10);
+    assertThat(regressions, hasSize(1));
+    assertThat(
+        regressions.get(0),
+        is(
+            "REGRESSION com.skraba.byexample.jmh.HashBenchmark.hash avgt:"
+                + " 75.500 ± 1.250 ns/op -> 85.000 ± 1.000 ns/op (12.6% slower)"));
+    // Getting faster is never a regression.
+    assertThat(
+        JmhRegressionMain.go(
+            "--history=" + history, "--baseline=ccc_jvm", "--current=aaa_jvm.json"),
+        is(0));
+
+    // A zero baseline can't be compared.
+    Files.writeString(history.resolve("ddd_jvm.json"), result(0, 0, 0));
+    assertThat(
+        JmhRegressionMain.go("--history=" + history, "--baseline=ddd_jvm", "--current=ccc_jvm"),
+        is(0));
+  }
+
+  @Test
+  public void testFindRun(@TempDir Path tmp) throws IOException {
+    String jvm = JmhRegressionMain.getJvm();
+    Path clean = Files.writeString(tmp.resolve(JmhRegressionMain.getKey("aaa", jvm) + ".json"), "");
+    Path dirty =
+        Files.writeString(tmp.resolve(JmhRegressionMain.getKey("aaa-dirty", jvm) + ".json"), "");
+    Path other = Files.writeString(tmp.resolve("aaa_other.json"), "");
+
+    // A commit only matches exactly on the current JVM.
+    assertThat(JmhRegressionMain.findRun(tmp, "aaa", null), is(clean));
+    assertThat(JmhRegressionMain.findRun(tmp, "aaa-dirty", null), is(dirty));
+    // A file name matches any JVM.
+    assertThat(JmhRegressionMain.findRun(tmp, "aaa_other", null), is(other));
+    assertThat(JmhRegressionMain.findRun(tmp, "aaa_other.json", null), is(other));
+    assertThrows(IllegalArgumentException.class, () -> JmhRegressionMain.findRun(tmp, "aa", null));
+    assertThrows(
+        IllegalArgumentException.class, () -> JmhRegressionMain.findRun(tmp, "aaa", clean));
+  }
+
+  @Test
+  public void testFailure(@TempDir Path tmp) throws IOException {
+    // The history can't be created, which isn't a problem with the command line.
+    Path history = Files.writeString(tmp.resolve("file"), "");
+    assertThat(
+        JmhRegressionMain.go("--history=" + history, "--current=aaa"),
+        is(JmhRegressionMain.EXIT_FAILURE));
+  }
+
+  @Test
+  public void testUsage(@TempDir Path tmp) {
+    assertThat(JmhRegressionMain.go("--garbage=1"), is(JmhRegressionMain.EXIT_USAGE));
+    assertThat(JmhRegressionMain.go("--history"), is(JmhRegressionMain.EXIT_USAGE));
+    assertThat(JmhRegressionMain.go("--threshold=abc"), is(JmhRegressionMain.EXIT_USAGE));
+    assertThat(JmhRegressionMain.go("--threshold=-1"), is(JmhRegressionMain.EXIT_USAGE));
+    assertThat(JmhRegressionMain.go("--threshold=NaN"), is(JmhRegressionMain.EXIT_USAGE));
+    assertThat(
+        JmhRegressionMain.go("--history=" + tmp, "--current=missing"),
+        is(JmhRegressionMain.EXIT_USAGE));
+    assertThat(
+        JmhRegressionMain.getKey("abc1234", "OpenJDK 64-Bit Server VM-17.0.1"),
+        is("abc1234_OpenJDK-64-Bit-Server-VM-17.0.1"));
+    assertThrows(
+        IllegalArgumentException.class, () -> new JmhRegressionMain.JsonReader("[1,").read());
+  }
+}
@@ -13,6 +13,25 @@ import org.junit.jupiter.api.Test;
 /** Some information about the accuracy of the methods in {@link MaxPrecisionBenchmark}. */
 public class MaxPrecisionBenchmarkTest {
 
+  /** The table and batch methods give the same results as the methods they are built from. */
+  @Test
+  public void testTableAndBatch() {
+    int[] sizes = new int[MAX_TABLE_SIZE * 2];
+    for (int i = 0; i < sizes.length; i++) {
+      sizes[i] = i;
+    }
+    long[] approx = new long[sizes.length];
+    long[] table = new long[sizes.length];
+    getMaxPrecisionWithApprox(sizes, approx, sizes.length);
+    getMaxPrecisionWithTable(sizes, table, sizes.length);
+    for (int size = 1; size < sizes.length; size++) {
+      long expected = (long) getMaxPrecisionLogPowerRule(size);
+      assertThat(getMaxPrecisionWithTable(size), is(expected));
+      assertThat(approx[size], is(expected));
+      assertThat(table[size], is(expected));
+    }
+  }
+
   /** Runs over different methods to check that they provide accurate results. */
   @Disabled("Long test takes about a minute to run.")
   @Test
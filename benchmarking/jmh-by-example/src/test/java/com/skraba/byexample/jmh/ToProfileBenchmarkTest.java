@@ -0,0 +1,40 @@
+package com.skraba.byexample.jmh;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import com.skraba.byexample.benchmarking.toprofile.Constellation;
+import org.junit.jupiter.api.Test;
+
+/** Checks that the states in {@link ToProfileBenchmark} are set up like the command line. */
+public class ToProfileBenchmarkTest {
+
+  @Test
+  public void testFilters() {
+    ToProfileBenchmark.Filters f = new ToProfileBenchmark.Filters("none");
+    assertThat(f.onlySuper, is(false));
+    assertThat(f.onlyHappy, is(false));
+    assertThat(f.constellations, empty());
+
+    f = new ToProfileBenchmark.Filters("super,happy,sexy");
+    assertThat(f.onlySuper, is(true));
+    assertThat(f.onlyHappy, is(true));
+    assertThat(f.constellations, contains(Constellation.SEXY));
+
+    f = new ToProfileBenchmark.Filters("twin,cousin");
+    assertThat(f.onlySuper, is(false));
+    assertThat(f.constellations, contains(Constellation.TWIN, Constellation.COUSIN));
+  }
+
+  @Test
+  public void testCount() {
+    ToProfileBenchmark.CountState state = new ToProfileBenchmark.CountState();
+    state.max = 1_000_000;
+    state.threads = 1;
+    for (String strategy : new String[] {"segmented", "wheel"}) {
+      state.strategy = strategy;
+      state.setupSieve();
+      assertThat(new ToProfileBenchmark().count(state), is(78_498));
+    }
+  }
+}
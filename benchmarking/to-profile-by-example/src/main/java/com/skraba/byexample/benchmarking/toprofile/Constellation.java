@@ -0,0 +1,54 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Small patterns of primes that are close together.
+ *
+ * @link <a href="https://en.wikipedia.org/wiki/Prime_k-tuple">Prime constellations</a>
+ */
+public enum Constellation {
+  /** Two primes that differ by 2, like (11, 13). */
+  TWIN(2),
+  /** Two primes that differ by 4, like (7, 11). */
+  COUSIN(4),
+  /** Two primes that differ by 6, like (5, 11). */
+  SEXY(6),
+  /** Three primes in the form (p, p + 2, p + 6) or (p, p + 4, p + 6), like (5, 7, 11). */
+  TRIPLET(6);
+
+  /** The distance between the smallest and the largest prime in the constellation. */
+  private final int width;
+
+  Constellation(int width) {
+    this.width = width;
+  }
+
+  /**
+   * @return the distance between the smallest and the largest prime in the constellation.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * @param twin Include twin primes.
+   * @param cousin Include cousin primes.
+   * @param sexy Include sexy primes.
+   * @return the set of the included constellations, which might be empty.
+   */
+  public static Set<Constellation> of(boolean twin, boolean cousin, boolean sexy) {
+    Set<Constellation> constellations = EnumSet.noneOf(Constellation.class);
+    if (twin) {
+      constellations.add(TWIN);
+    }
+    if (cousin) {
+      constellations.add(COUSIN);
+    }
+    if (sexy) {
+      constellations.add(SEXY);
+    }
+    return constellations;
+  }
+}
@@ -0,0 +1,148 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Finds the primes that belong to any of the given {@link Constellation}s, by looking at a sliding
+ * window of the most recent primes.
+ *
+ * <p>The primes must be sent in ascending order. A prime is only sent on to the consumer once the
+ * primes are too far apart for it to be part of any other constellation, so every accepted prime is
+ * sent exactly once and in ascending order, in constant time and memory for each prime.
+ *
+ * <p>Each prime can also be marked as not eligible. It will never be sent to the consumer, but can
+ * still be part of a constellation with the other primes. This is used to apply other filters, or
+ * to look at primes outside of a range without accepting them.
+ */
+public class ConstellationDetector implements IntConsumer {
+
+  /** There are never more than four primes within a distance of six. */
+  private static final int CAPACITY = 8;
+
+  private final boolean twin;
+  private final boolean cousin;
+  private final boolean sexy;
+  private final boolean triplet;
+
+  /** The largest distance between two primes in any of the constellations. */
+  private final int window;
+
+  private final IntConsumer f;
+
+  /** A ring buffer of the primes in the window, with their flags. */
+  private final int[] primes = new int[CAPACITY];
+
+  private final boolean[] eligible = new boolean[CAPACITY];
+  private final boolean[] member = new boolean[CAPACITY];
+
+  /** The position of the oldest prime in the ring buffer. */
+  private int head;
+
+  /** The number of primes in the ring buffer. */
+  private int size;
+
+  /**
+   * @param constellations The constellations to detect.
+   * @param f The consumer for the primes that are in any of the constellations.
+   */
+  public ConstellationDetector(Set<Constellation> constellations, IntConsumer f) {
+    this.twin = constellations.contains(Constellation.TWIN);
+    this.cousin = constellations.contains(Constellation.COUSIN);
+    this.sexy = constellations.contains(Constellation.SEXY);
+    this.triplet = constellations.contains(Constellation.TRIPLET);
+    this.window = constellations.stream().mapToInt(Constellation::getWidth).max().orElse(0);
+    this.f = f;
+  }
+
+  /**
+   * @return the largest distance between two primes in any of the constellations. A prime can only
+   *     be accepted once a prime past this distance has been seen, or the detector is flushed.
+   */
+  public int getWindow() {
+    return window;
+  }
+
+  /**
+   * Adds an eligible prime to the window.
+   *
+   * @param prime The next prime, which must be larger than all of the primes already seen.
+   */
+  @Override
+  public void accept(int prime) {
+    accept(prime, true);
+  }
+
+  /**
+   * Adds a prime to the window.
+   *
+   * @param prime The next prime, which must be larger than all of the primes already seen.
+   * @param isEligible Whether the prime can be sent to the consumer if it is in a constellation.
+   */
+  public void accept(int prime, boolean isEligible) {
+    // Every prime that is too far away from this one can't be in any new constellation.
+    while (size > 0 && (long) primes[head] + window < prime) {
+      emit();
+    }
+
+    // Look for the primes 2, 4 and 6 behind this one.
+    boolean isMember = false;
+    int behind2 = -1;
+    int behind4 = -1;
+    int behind6 = -1;
+    for (int i = 0; i < size; i++) {
+      int pos = (head + i) & (CAPACITY - 1);
+      switch (prime - primes[pos]) {
+        case 2:
+          behind2 = pos;
+          if (twin) {
+            isMember = member[pos] = true;
+          }
+          break;
+        case 4:
+          behind4 = pos;
+          if (cousin) {
+            isMember = member[pos] = true;
+          }
+          break;
+        case 6:
+          behind6 = pos;
+          if (sexy) {
+            isMember = member[pos] = true;
+          }
+          break;
+        default:
+      }
+    }
+    if (triplet && behind6 >= 0 && (behind4 >= 0 || behind2 >= 0)) {
+      isMember = member[behind6] = true;
+      if (behind4 >= 0) {
+        member[behind4] = true;
+      }
+      if (behind2 >= 0) {
+        member[behind2] = true;
+      }
+    }
+
+    int tail = (head + size++) & (CAPACITY - 1);
+    primes[tail] = prime;
+    eligible[tail] = isEligible;
+    member[tail] = isMember;
+  }
+
+  /** Sends all of the remaining accepted primes to the consumer, and empties the window. */
+  public void flush() {
+    while (size > 0) {
+      emit();
+    }
+  }
+
+  /** Removes the oldest prime from the window, and sends it to the consumer if it was accepted. */
+  private void emit() {
+    if (member[head] && eligible[head]) {
+      f.accept(primes[head]);
+    }
+    head = (head + 1) & (CAPACITY - 1);
+    size--;
+  }
+}
@@ -0,0 +1,67 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+/**
+ * A table-driven classifier for happy numbers, without recursion or any allocation.
+ *
+ * <p>The sum of the squares of the digits of any int is at most {@code 9² × 10 = 810}, so the
+ * answer for every number up to 810 is calculated once and stored in a table. Any larger number
+ * only needs one step to get into the table.
+ *
+ * @link <a href="https://en.wikipedia.org/wiki/Happy_number">Happy number</a>
+ */
+public class HappyNumbers {
+
+  /** The largest possible sum of the squares of the digits of an int. */
+  public static final int MAX_SUM = 9 * 9 * 10;
+
+  /** The sum of the squares of the two digits of every number from 00 to 99. */
+  private static final int[] SUM_SQUARE_DIGIT_PAIRS = new int[100];
+
+  /** Whether each number from 0 to MAX_SUM is happy. */
+  private static final boolean[] HAPPY = new boolean[MAX_SUM + 1];
+
+  static {
+    for (int i = 0; i < SUM_SQUARE_DIGIT_PAIRS.length; i++) {
+      SUM_SQUARE_DIGIT_PAIRS[i] = (i / 10) * (i / 10) + (i % 10) * (i % 10);
+    }
+    for (int i = 1; i <= MAX_SUM; i++) {
+      // All happy numbers end up as one, and all unhappy numbers end up in a sequence containing
+      // four.
+      int n = i;
+      while (n != 1 && n != 4) {
+        n = sumSquareDigits(n);
+      }
+      HAPPY[i] = n == 1;
+    }
+  }
+
+  private HappyNumbers() {}
+
+  /**
+   * @param num A positive number.
+   * @return the sum of the squares of the 10-based digits of the number.
+   */
+  public static int sumSquareDigits(int num) {
+    int sum = 0;
+    while (num > 0) {
+      sum += SUM_SQUARE_DIGIT_PAIRS[num % 100];
+      num /= 100;
+    }
+    return sum;
+  }
+
+  /**
+   * A number is happy if successively applying a specific transformation does not end in a cycle.
+   * This gives the same result as {@link ToProfileGo#isHappy(int)}, but much faster.
+   *
+   * @param num The number to check.
+   * @return If the candidate is a happy number.
+   * @throws IllegalArgumentException if the number is zero or negative.
+   */
+  public static boolean isHappy(int num) {
+    if (num < 1) {
+      throw new IllegalArgumentException("The number " + num + " is neither happy or unhappy.");
+    }
+    return HAPPY[num <= MAX_SUM ? num : sumSquareDigits(num)];
+  }
+}
@@ -0,0 +1,32 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Accepts primitive ints in batches, to avoid boxing every value or calling a method for every
+ * value.
+ */
+@FunctionalInterface
+public interface IntBatchConsumer {
+
+  /**
+   * Accepts a batch of values. The array belongs to the caller and will be reused as soon as this
+   * method returns.
+   *
+   * @param values The values in the batch, starting at index zero.
+   * @param length The number of values in the batch.
+   */
+  void accept(int[] values, int length);
+
+  /**
+   * @param f The consumer to call for every value in the batch.
+   * @return a batch consumer that calls the given consumer for every value in order.
+   */
+  static IntBatchConsumer of(IntConsumer f) {
+    return (values, length) -> {
+      for (int i = 0; i < length; i++) {
+        f.accept(values[i]);
+      }
+    };
+  }
+}
@@ -0,0 +1,164 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a {@link SegmentedSieve} on many threads, while still sending the filtered primes in batches
+ * to a consumer on the calling thread in ascending order.
+ *
+ * <p>The segments are processed in waves of a few segments per thread:
+ *
+ * <ol>
+ *   <li>Every segment in the wave is sieved and counted in parallel.
+ *   <li>A prefix count over the wave finds the global index of the first prime in every segment,
+ *       which is necessary for the super filter.
+ *   <li>Every segment in the wave is filtered in parallel, into its own buffer.
+ *   <li>The buffers are sent to the consumer in order.
+ * </ol>
+ *
+ * Only one wave of segments is ever kept in memory, so the memory used only depends on the number
+ * of threads.
+ */
+public class ParallelSieve {
+
+  /** The number of segments in a wave for each thread, to balance the work between threads. */
+  public static final int SEGMENTS_PER_THREAD = 4;
+
+  private final SegmentedSieve sieve;
+  private final int threads;
+  private final Slot[] slots;
+
+  /** The work and results for one segment in a wave. */
+  private static class Slot {
+    private final long[] bits;
+    private final PrimeFilter filter;
+    private int segment;
+    private int count;
+    private int before;
+    private final PrimeBuffer accepted = new PrimeBuffer();
+
+    private Slot(long[] bits, PrimeFilter filter) {
+      this.bits = bits;
+      this.filter = filter;
+    }
+  }
+
+  /**
+   * @param sieve The sieve to run.
+   * @param threads The number of threads to use.
+   * @param onlySuper Only consume primes that are super (have an index that is also prime).
+   * @param onlyHappy Only consume primes that are happy.
+   * @param onlySexy Only consume primes that are sexy (differ in 6 by another prime).
+   */
+  public ParallelSieve(
+      SegmentedSieve sieve, int threads, boolean onlySuper, boolean onlyHappy, boolean onlySexy) {
+    this(sieve, threads, onlySuper, onlyHappy, Constellation.of(false, false, onlySexy));
+  }
+
+  /**
+   * @param sieve The sieve to run.
+   * @param threads The number of threads to use.
+   * @param onlySuper Only consume primes that are super (have an index that is also prime).
+   * @param onlyHappy Only consume primes that are happy.
+   * @param constellations If not empty, only consume primes that are in one of these
+   *     constellations.
+   */
+  public ParallelSieve(
+      SegmentedSieve sieve,
+      int threads,
+      boolean onlySuper,
+      boolean onlyHappy,
+      Set<Constellation> constellations) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("The number of threads must be positive: " + threads);
+    }
+    this.sieve = sieve;
+    this.threads = threads;
+    this.slots = new Slot[threads * SEGMENTS_PER_THREAD];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] =
+          new Slot(sieve.newSegment(), new PrimeFilter(onlySuper, onlyHappy, constellations));
+    }
+  }
+
+  /**
+   * Runs the sieve.
+   *
+   * @param f a consumer that is called on this thread with the primes found in each segment, after
+   *     filtering, or null if only the count is necessary.
+   * @return the number of primes found, regardless of which were consumed.
+   */
+  public int run(IntBatchConsumer f) {
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      int count = 0;
+      for (int first = 0; first < sieve.getSegments(); first += slots.length) {
+        int size = Math.min(slots.length, sieve.getSegments() - first);
+
+        // Sieve and count all of the segments in the wave.
+        List<Callable<Void>> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          final Slot slot = slots[i];
+          slot.segment = first + i;
+          tasks.add(
+              () -> {
+                sieve.sieve(slot.segment, slot.bits);
+                slot.count = sieve.count(slot.segment, slot.bits);
+                return null;
+              });
+        }
+        invokeAll(pool, tasks);
+
+        // The prefix count gives the number of primes before each segment.
+        for (int i = 0; i < size; i++) {
+          slots[i].before = count;
+          count += slots[i].count;
+        }
+
+        if (f == null) {
+          continue;
+        }
+
+        // Filter all of the segments in the wave.
+        tasks.clear();
+        for (int i = 0; i < size; i++) {
+          final Slot slot = slots[i];
+          tasks.add(
+              () -> {
+                slot.filter.filter(sieve, slot.segment, slot.bits, slot.before, slot.accepted);
+                return null;
+              });
+        }
+        invokeAll(pool, tasks);
+
+        // And send them to the consumer in order.
+        for (int i = 0; i < size; i++) {
+          slots[i].accepted.flush(f);
+        }
+      }
+      return count;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /** Runs all of the tasks in the pool and waits for them to finish. */
+  private static void invokeAll(ForkJoinPool pool, List<Callable<Void>> tasks) {
+    for (Future<Void> result : pool.invokeAll(tasks)) {
+      try {
+        result.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while sieving", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Unexpected exception while sieving", e.getCause());
+      }
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/** Collects primes into a reusable, growing array so that they can be sent as a batch. */
+public class PrimeBuffer implements IntConsumer {
+
+  private int[] primes = new int[1024];
+  private int size;
+
+  @Override
+  public void accept(int prime) {
+    if (size == primes.length) {
+      primes = Arrays.copyOf(primes, primes.length * 2);
+    }
+    primes[size++] = prime;
+  }
+
+  /**
+   * @return the number of primes in the buffer.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Sends all of the primes in the buffer to a consumer, and empties the buffer.
+   *
+   * @param f The consumer of the batch, or null to just empty the buffer.
+   */
+  public void flush(IntBatchConsumer f) {
+    if (f != null && size > 0) {
+      f.accept(primes, size);
+    }
+    size = 0;
+  }
+}
@@ -0,0 +1,140 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link SegmentedSieve} that remembers the sieved segments in a memory-mapped file, so that they
+ * never need to be sieved again.
+ *
+ * <p>The file has a small header, followed by one bit for every odd number, in exactly the same
+ * layout as the segments: the bit {@code j} is clear if the odd number {@code 2j + 1} is prime. The
+ * header records the limit that has already been sieved, and is only updated when the cache is
+ * closed.
+ *
+ * <p>When sieving up to a lower limit than the cache, every segment is copied from the file. When
+ * sieving up to a higher limit, only the segments past the limit of the cache are sieved and added
+ * to the file.
+ */
+public class PrimeCache extends SegmentedSieve implements Closeable {
+
+  /** The name of the cache file in the cache directory. */
+  public static final String FILE_NAME = "primes.bits";
+
+  /** The first eight bytes of the file are "PRIMEBIT". */
+  private static final long MAGIC = 0x5052494d45424954L;
+
+  /** The magic number and the sieved limit. */
+  private static final int HEADER_SIZE = 2 * Long.BYTES;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer mapped;
+  private final LongBuffer words;
+
+  /** The largest number that has already been sieved in the file. */
+  private final int cachedLimit;
+
+  /** The number of segments that need to be sieved because they aren't in the cache. */
+  private final int uncached;
+
+  /** The number of segments that had to be sieved because they weren't in the cache. */
+  private final AtomicInteger sieved = new AtomicInteger();
+
+  /**
+   * @param dir The directory that contains the cache file, created if necessary.
+   * @param max The largest number to be sieved.
+   * @throws IOException if the cache file can't be read or written.
+   */
+  public PrimeCache(Path dir, int max) throws IOException {
+    super(max);
+    Files.createDirectories(dir);
+    this.channel =
+        FileChannel.open(
+            dir.resolve(FILE_NAME),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+
+    // Map enough of the file for all of the segments, which grows the file if necessary.
+    long size = HEADER_SIZE + getLow(getSegments()) / 16;
+    this.mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    mapped.order(ByteOrder.LITTLE_ENDIAN);
+    this.cachedLimit = mapped.getLong(0) == MAGIC ? (int) mapped.getLong(Long.BYTES) : 0;
+    this.words =
+        mapped
+            .slice(HEADER_SIZE, (int) (size - HEADER_SIZE))
+            .order(ByteOrder.LITTLE_ENDIAN)
+            .asLongBuffer();
+    int cachedSegments = 0;
+    while (cachedSegments < getSegments() && isCached(cachedSegments)) {
+      cachedSegments++;
+    }
+    this.uncached = getSegments() - cachedSegments;
+  }
+
+  /**
+   * @return whether all of the numbers in the segment are already in the cache.
+   */
+  private boolean isCached(int segment) {
+    return getHigh(segment) - 1 <= cachedLimit;
+  }
+
+  /**
+   * @return the largest number that was already in the cache when it was opened.
+   */
+  public int getCachedLimit() {
+    return cachedLimit;
+  }
+
+  /**
+   * @return the number of segments that had to be sieved because they weren't in the cache.
+   */
+  public int getSieved() {
+    return sieved.get();
+  }
+
+  /**
+   * Copies the segment from the cache if possible, or sieves it and saves it in the cache. This can
+   * be called from many threads at once, as long as they are all working on different segments.
+   */
+  @Override
+  public void sieve(int segment, long[] bits) {
+    int offset = (int) (getLow(segment) / 128);
+    int nWords = getWords(segment);
+    if (isCached(segment)) {
+      words.get(offset, bits, 0, nWords);
+      // The cache might have been sieved past max.
+      markUnused(bits, getBits(segment));
+    } else {
+      super.sieve(segment, bits);
+      words.put(offset, bits, 0, nWords);
+      sieved.incrementAndGet();
+    }
+  }
+
+  /**
+   * Records the new limit in the header and closes the file. The limit is only changed if all of
+   * the segments that weren't in the cache have been sieved.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (uncached > 0 && sieved.get() >= uncached) {
+        // Make sure the segments are written before the header that describes them.
+        mapped.force();
+        mapped.putLong(0, MAGIC).putLong(Long.BYTES, getMax());
+        mapped.force();
+      }
+    } finally {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Applies the super, happy and constellation filters to the primes in one segment of a {@link
+ * SegmentedSieve}, with exactly the same results as {@link ToProfileGo#sieveOfEratosthenes}.
+ *
+ * <p>Since the segments don't remember any of the primes that were found before them, the super
+ * filter needs to know how many primes were found in the earlier segments, and the constellation
+ * filters fall back to trial division for the few numbers just outside of the segment.
+ *
+ * <p>An instance reuses some memory between segments, and should only be used by one thread.
+ */
+public class PrimeFilter {
+
+  private final boolean onlySuper;
+  private final boolean onlyHappy;
+  private final Set<Constellation> constellations;
+
+  /** A sieved range for checking whether the indices of the primes are themselves prime. */
+  private long[] indices;
+
+  /**
+   * @param onlySuper Only consume primes that are super (have an index that is also prime).
+   * @param onlyHappy Only consume primes that are happy.
+   * @param onlySexy Only consume primes that are sexy (differ in 6 by another prime).
+   */
+  public PrimeFilter(boolean onlySuper, boolean onlyHappy, boolean onlySexy) {
+    this(onlySuper, onlyHappy, Constellation.of(false, false, onlySexy));
+  }
+
+  /**
+   * @param onlySuper Only consume primes that are super (have an index that is also prime).
+   * @param onlyHappy Only consume primes that are happy.
+   * @param constellations If not empty, only consume primes that are in one of these
+   *     constellations.
+   */
+  public PrimeFilter(boolean onlySuper, boolean onlyHappy, Set<Constellation> constellations) {
+    this.onlySuper = onlySuper;
+    this.onlyHappy = onlyHappy;
+    this.constellations = constellations;
+  }
+
+  /**
+   * Sends the primes in a sieved segment that pass the filters to a consumer.
+   *
+   * @param sieve The sieve that was used.
+   * @param segment The index of the segment that was sieved.
+   * @param bits The sieved segment.
+   * @param before The number of primes in all of the segments before this one.
+   * @param f The consumer that is called when a prime is found, after filtering, or null if only
+   *     the count is necessary.
+   * @return the number of primes in the segment, regardless of which were consumed.
+   */
+  public int filter(SegmentedSieve sieve, int segment, long[] bits, int before, IntConsumer f) {
+    int count = sieve.count(segment, bits);
+    if (f == null) {
+      return count;
+    }
+    if (!onlySuper && !onlyHappy && constellations.isEmpty()) {
+      sieve.forEachPrime(segment, bits, f);
+      return count;
+    }
+
+    // The indices of the primes in this segment run from before + 1 to before + count.
+    final long indicesLow = (before + 1L) & ~1L;
+    if (onlySuper) {
+      if (indices == null) {
+        indices = sieve.newSegment();
+      }
+      sieve.sieveRange(indicesLow, before + count + 1L, indices);
+    }
+
+    if (constellations.isEmpty()) {
+      final int[] index = {before};
+      sieve.forEachPrime(
+          segment,
+          bits,
+          prime -> {
+            if (isEligible(prime, ++index[0], indicesLow)) {
+              f.accept(prime);
+            }
+          });
+      return count;
+    }
+
+    // The primes just outside the segment can be in a constellation, but are never accepted.
+    final ConstellationDetector detector = new ConstellationDetector(constellations, f);
+    long low = sieve.getLow(segment);
+    long high = sieve.getHigh(segment);
+    for (long n = Math.max(0, low - detector.getWindow()); n < low; n++) {
+      if (sieve.isPrime(n)) {
+        detector.accept((int) n, false);
+      }
+    }
+    final int[] index = {before};
+    sieve.forEachPrime(
+        segment, bits, prime -> detector.accept(prime, isEligible(prime, ++index[0], indicesLow)));
+    for (long n = high; n < high + detector.getWindow() && n <= sieve.getMax(); n++) {
+      if (sieve.isPrime(n)) {
+        detector.accept((int) n, false);
+      }
+    }
+    detector.flush();
+    return count;
+  }
+
+  /**
+   * @return whether the prime passes the super and happy filters.
+   */
+  private boolean isEligible(int prime, int index, long indicesLow) {
+    if (onlySuper && !SegmentedSieve.isPrime(indices, indicesLow, index)) {
+      return false;
+    }
+    return !onlyHappy || HappyNumbers.isHappy(prime);
+  }
+}
@@ -0,0 +1,136 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily iterates over all of the primes in ascending order, only sieving the next segment when the
+ * primes in the current segment have all been consumed.
+ *
+ * <p>The position of the iterator can be saved as a small checkpoint at any time, and a new
+ * iterator created from the checkpoint continues exactly where the old one left off, without
+ * sieving any of the earlier segments again. This is useful for long running jobs that might be
+ * stopped and resumed.
+ *
+ * <pre>
+ * PrimeIterator primes = new PrimeIterator();
+ * primes.nextInt(); // 2
+ * primes.nextInt(); // 3
+ * long checkpoint = primes.getCheckpoint();
+ * // ... later
+ * new PrimeIterator(checkpoint).nextInt(); // 5
+ * </pre>
+ */
+public class PrimeIterator implements PrimitiveIterator.OfInt {
+
+  private final SegmentedSieve sieve;
+  private final long[] bits;
+
+  /** The primes in the current segment. */
+  private final int[] primes;
+
+  /** The number of primes in the current segment. */
+  private int size;
+
+  /** The index of the next prime to return in the current segment. */
+  private int next;
+
+  /** The current segment, or -1 before the first segment is sieved. */
+  private int segment = -1;
+
+  /** The number of primes that have been returned, including before the checkpoint. */
+  private int count;
+
+  /** The last prime that was returned, or zero if none. */
+  private int last;
+
+  /** An iterator over all of the primes that fit in an int. */
+  public PrimeIterator() {
+    this(0L);
+  }
+
+  /**
+   * @param checkpoint A checkpoint from {@link #getCheckpoint()} to resume from.
+   */
+  public PrimeIterator(long checkpoint) {
+    this(new SegmentedSieve(Integer.MAX_VALUE), checkpoint);
+  }
+
+  /**
+   * @param sieve The sieve to use, which determines the largest prime that will be returned.
+   * @param checkpoint A checkpoint from {@link #getCheckpoint()} to resume from, or zero to start
+   *     from the beginning.
+   */
+  public PrimeIterator(SegmentedSieve sieve, long checkpoint) {
+    this.sieve = sieve;
+    this.bits = sieve.newSegment();
+    // Every bit can be a prime, plus the primes that aren't stored.
+    this.primes = new int[bits.length * 64 + 3];
+    this.count = (int) (checkpoint >>> 32);
+    this.last = (int) checkpoint;
+    if (last > 0) {
+      // Skip directly to the segment with the last prime, and then past it.
+      segment = (int) (last / sieve.getSpan()) - 1;
+      while (hasNext() && primes[next] <= last) {
+        next++;
+      }
+    }
+  }
+
+  /**
+   * @return a stream of the primes that haven't been returned yet.
+   */
+  public IntStream stream() {
+    return StreamSupport.intStream(
+        Spliterators.spliteratorUnknownSize(
+            this,
+            Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL),
+        false);
+  }
+
+  /**
+   * @return the position of the iterator, that can be used to create a new iterator that returns
+   *     the same primes as this one. This packs the number of primes returned so far and the last
+   *     prime returned into a long.
+   */
+  public long getCheckpoint() {
+    return ((long) count << 32) | (last & 0xFFFFFFFFL);
+  }
+
+  /**
+   * @return the number of primes that have been returned so far, which is also the index of the
+   *     last prime returned.
+   */
+  public int getCount() {
+    return count;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (next >= size) {
+      if (segment + 1 >= sieve.getSegments()) {
+        return false;
+      }
+      segment++;
+      sieve.sieve(segment, bits);
+      size = 0;
+      next = 0;
+      sieve.forEachPrime(segment, bits, p -> primes[size++] = p);
+    }
+    return true;
+  }
+
+  @Override
+  public int nextInt() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    last = primes[next++];
+    count++;
+    return last;
+  }
+}
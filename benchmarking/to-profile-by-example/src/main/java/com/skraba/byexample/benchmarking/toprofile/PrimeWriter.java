@@ -0,0 +1,144 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntConsumer;
+
+/**
+ * Writes ints to a channel, one per line, formatting them directly into a reusable byte buffer.
+ *
+ * <p>Unlike {@code System.out.println(prime)}, this doesn't create a String for every number or
+ * take a lock for every line, and only writes to the channel when the buffer is full.
+ */
+public class PrimeWriter implements IntConsumer, IntBatchConsumer, Flushable, Closeable {
+
+  /** The default size of the buffer. */
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  /** The longest int is {@code -2147483648} followed by a newline. */
+  private static final int MAX_LINE = 12;
+
+  private final WritableByteChannel out;
+  private final boolean closeOut;
+  private final byte[] buffer;
+  private final ByteBuffer wrapped;
+  private int position;
+
+  /**
+   * @param out The channel to write to.
+   * @param bufferSize The size of the buffer to use.
+   * @param closeOut Whether to close the channel when this writer is closed.
+   */
+  public PrimeWriter(WritableByteChannel out, int bufferSize, boolean closeOut) {
+    this.out = out;
+    this.closeOut = closeOut;
+    this.buffer = new byte[Math.max(bufferSize, MAX_LINE)];
+    this.wrapped = ByteBuffer.wrap(buffer);
+  }
+
+  /**
+   * @return a writer to standard out, that flushes but doesn't close it.
+   */
+  public static PrimeWriter toStdout() {
+    return new PrimeWriter(Channels.newChannel(System.out), DEFAULT_BUFFER_SIZE, false);
+  }
+
+  /**
+   * @param path The file to write to, which is replaced if it already exists.
+   * @return a writer to the file, that closes it when finished.
+   * @throws IOException if the file can't be opened.
+   */
+  public static PrimeWriter toFile(Path path) throws IOException {
+    return new PrimeWriter(
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING),
+        DEFAULT_BUFFER_SIZE,
+        true);
+  }
+
+  /**
+   * Writes one number on its own line.
+   *
+   * @param value The number to write.
+   * @throws UncheckedIOException if the buffer was full and couldn't be written.
+   */
+  @Override
+  public void accept(int value) {
+    if (buffer.length - position < MAX_LINE) {
+      try {
+        flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    long n = value;
+    if (n < 0) {
+      buffer[position++] = '-';
+      n = -n;
+    }
+    // Write the digits from the end.
+    int end = position + digits(n);
+    position = end;
+    do {
+      buffer[--end] = (byte) ('0' + n % 10);
+      n /= 10;
+    } while (n > 0);
+    buffer[position++] = '\n';
+  }
+
+  /**
+   * Writes a batch of numbers, each on its own line.
+   *
+   * @throws UncheckedIOException if the buffer was full and couldn't be written.
+   */
+  @Override
+  public void accept(int[] values, int length) {
+    for (int i = 0; i < length; i++) {
+      accept(values[i]);
+    }
+  }
+
+  /**
+   * @return the number of decimal digits in a non-negative number.
+   */
+  private static int digits(long n) {
+    int digits = 1;
+    while (n >= 10) {
+      n /= 10;
+      digits++;
+    }
+    return digits;
+  }
+
+  /** Writes the contents of the buffer to the channel. */
+  @Override
+  public void flush() throws IOException {
+    wrapped.clear().limit(position);
+    while (wrapped.hasRemaining()) {
+      out.write(wrapped);
+    }
+    position = 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      if (closeOut) {
+        out.close();
+      }
+    }
+  }
+}
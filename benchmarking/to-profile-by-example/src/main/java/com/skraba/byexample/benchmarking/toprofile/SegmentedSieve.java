@@ -0,0 +1,285 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A segmented Sieve of Eratosthenes that only stores odd numbers, one bit per number, in a {@code
+ * long[]} segment that is small enough to stay in the CPU cache.
+ *
+ * <p>The range {@code [0, max]} is split into segments of {@code segmentWords * 128} numbers. In a
+ * sieved segment starting at {@code low}, the bit {@code j} is <b>clear</b> if the odd number
+ * {@code low + 2j + 1} is prime. The only even prime (2) is never stored, but is always reported
+ * with the first segment.
+ *
+ * <p>Each segment is sieved independently of the others, using only the primes up to the square
+ * root of {@code max}, so the memory used is constant no matter how large {@code max} is.
+ *
+ * @link <a href="https://en.wikipedia.org/wiki/Sieve_of_Eratosthenes#Segmented_sieve">Segmented
+ *     sieve</a>
+ */
+public class SegmentedSieve {
+
+  /** The default segment size in 64-bit words, 32KiB is the size of a typical L1 data cache. */
+  public static final int DEFAULT_SEGMENT_WORDS = 4 * 1024;
+
+  /** The largest number that can be sieved. */
+  private final int max;
+
+  /** The number of 64-bit words in a segment. */
+  private final int segmentWords;
+
+  /** All of the odd primes whose square is less than or equal to max. */
+  private final int[] sievingPrimes;
+
+  public SegmentedSieve(int max) {
+    this(max, DEFAULT_SEGMENT_WORDS);
+  }
+
+  /**
+   * @param max The largest number to be sieved.
+   * @param segmentWords The number of 64-bit words in each segment.
+   */
+  public SegmentedSieve(int max, int segmentWords) {
+    if (segmentWords < 2) {
+      throw new IllegalArgumentException("The segment must have at least two words.");
+    }
+    this.max = Math.max(max, 1);
+    this.segmentWords = segmentWords;
+    this.sievingPrimes = smallOddPrimes((int) Math.sqrt(this.max));
+  }
+
+  /**
+   * A simple, unsegmented sieve for the small primes.
+   *
+   * @param limit The largest number to check.
+   * @return All of the odd primes up to and including the limit.
+   */
+  private static int[] smallOddPrimes(int limit) {
+    boolean[] composite = new boolean[limit + 1];
+    int[] primes = new int[limit + 1];
+    int count = 0;
+    for (int i = 3; i <= limit; i += 2) {
+      if (!composite[i]) {
+        primes[count++] = i;
+        for (long j = (long) i * i; j <= limit; j += 2L * i) {
+          composite[(int) j] = true;
+        }
+      }
+    }
+    return Arrays.copyOf(primes, count);
+  }
+
+  /**
+   * @return all of the odd primes whose square is less than or equal to max, in order.
+   */
+  protected int[] getSievingPrimes() {
+    return sievingPrimes;
+  }
+
+  /**
+   * @return the largest number that can be sieved.
+   */
+  public int getMax() {
+    return max;
+  }
+
+  /**
+   * @return the number of segments necessary to cover all of the numbers up to max.
+   */
+  public int getSegments() {
+    return (int) (((long) max + getSpan()) / getSpan());
+  }
+
+  /**
+   * @return the number of numbers (odd and even) covered by one segment.
+   */
+  public long getSpan() {
+    return segmentWords * 128L;
+  }
+
+  /**
+   * @return the number of 64-bit words in a segment.
+   */
+  protected int getSegmentWords() {
+    return segmentWords;
+  }
+
+  /**
+   * @return the first number (always even) in the given segment.
+   */
+  public long getLow(int segment) {
+    return segment * getSpan();
+  }
+
+  /**
+   * @return the number after the last number in the given segment.
+   */
+  public long getHigh(int segment) {
+    return Math.min(getLow(segment) + getSpan(), max + 1L);
+  }
+
+  /**
+   * @return a new, unsieved array that is large enough to hold one segment.
+   */
+  public long[] newSegment() {
+    return new long[segmentWords];
+  }
+
+  /**
+   * Sieves one segment.
+   *
+   * @param segment The index of the segment to sieve.
+   * @param bits An array created by {@link #newSegment()} that will be overwritten.
+   */
+  public void sieve(int segment, long[] bits) {
+    sieveRange(getLow(segment), getHigh(segment), bits);
+  }
+
+  /**
+   * Sieves the odd numbers in an arbitrary range, which must not go past max. On return, bit {@code
+   * j} is clear if and only if the number {@code low + 2j + 1} is prime, and all of the unused bits
+   * in the last word are set.
+   *
+   * @param low The first number in the range, which must be even.
+   * @param high The number after the last number in the range.
+   * @param bits The array to overwrite, which must have enough room for the range.
+   */
+  public void sieveRange(long low, long high, long[] bits) {
+    int nBits = (int) ((high - low) / 2);
+    int nWords = (nBits + 63) >>> 6;
+    Arrays.fill(bits, 0, nWords, 0L);
+    for (int p : sievingPrimes) {
+      long start = (long) p * p;
+      if (start >= high) {
+        break;
+      }
+      if (start < low) {
+        // The first odd multiple of p that is in the range.
+        start = (low + p - 1) / p * p;
+        if ((start & 1) == 0) {
+          start += p;
+        }
+      }
+      for (int j = (int) ((start - low) >>> 1); j < nBits; j += p) {
+        bits[j >>> 6] |= 1L << j;
+      }
+    }
+    // One is not a prime number.
+    if (low == 0 && nBits > 0) {
+      bits[0] |= 1L;
+    }
+    markUnused(bits, nBits);
+  }
+
+  /**
+   * Marks all of the unused bits at the end of the last word in a range as composite.
+   *
+   * @param bits The range to modify.
+   * @param nBits The number of bits used in the range.
+   */
+  protected static void markUnused(long[] bits, int nBits) {
+    if ((nBits & 63) != 0) {
+      bits[(nBits >>> 6)] |= -1L << nBits;
+    }
+  }
+
+  /**
+   * @return the number of bits used in the given segment.
+   */
+  protected int getBits(int segment) {
+    return (int) ((getHigh(segment) - getLow(segment)) / 2);
+  }
+
+  /**
+   * @return the number of words used in the given segment.
+   */
+  protected int getWords(int segment) {
+    return (getBits(segment) + 63) >>> 6;
+  }
+
+  /**
+   * @param segment The index of a segment that has been sieved.
+   * @param bits The sieved segment.
+   * @return the number of primes in the segment.
+   */
+  public int count(int segment, long[] bits) {
+    int count = segment == 0 && max >= 2 ? 1 : 0;
+    for (int w = getWords(segment); --w >= 0; ) {
+      count += Long.bitCount(~bits[w]);
+    }
+    return count;
+  }
+
+  /**
+   * Sends all of the primes in a sieved segment to a consumer in ascending order.
+   *
+   * @param segment The index of a segment that has been sieved.
+   * @param bits The sieved segment.
+   * @param f The consumer to call for each prime.
+   */
+  public void forEachPrime(int segment, long[] bits, IntConsumer f) {
+    long low = getLow(segment);
+    if (low == 0 && max >= 2) {
+      f.accept(2);
+    }
+    int nWords = getWords(segment);
+    for (int w = 0; w < nWords; w++) {
+      long word = ~bits[w];
+      while (word != 0) {
+        f.accept((int) (low + 2L * ((w << 6) + Long.numberOfTrailingZeros(word)) + 1));
+        word &= word - 1;
+      }
+    }
+  }
+
+  /**
+   * Checks whether a number is prime in a segment sieved by {@link #sieve}.
+   *
+   * @param segment The index of a segment that has been sieved.
+   * @param bits The sieved segment.
+   * @param n The number to check, which must be inside the segment.
+   * @return whether the number is prime.
+   */
+  public boolean isPrime(int segment, long[] bits, long n) {
+    return isPrime(bits, getLow(segment), n);
+  }
+
+  /**
+   * Checks whether a number is prime in a range sieved by {@link #sieveRange}.
+   *
+   * @param bits The sieved range.
+   * @param low The first number of the sieved range.
+   * @param n The number to check, which must be inside the sieved range.
+   * @return whether the number is prime.
+   */
+  public static boolean isPrime(long[] bits, long low, long n) {
+    if ((n & 1) == 0) {
+      return n == 2;
+    }
+    int j = (int) ((n - low) >>> 1);
+    return (bits[j >>> 6] & (1L << j)) == 0;
+  }
+
+  /**
+   * Checks whether any number up to max is prime by trial division, without needing a sieved
+   * segment. This is slow, and is only meant to be used for a few numbers.
+   *
+   * @param n The number to check.
+   * @return whether the number is prime.
+   */
+  public boolean isPrime(long n) {
+    if (n < 2 || (n & 1) == 0) {
+      return n == 2;
+    }
+    for (int p : sievingPrimes) {
+      if ((long) p * p > n) {
+        break;
+      }
+      if (n % p == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -2,11 +2,16 @@ package com.skraba.byexample.benchmarking.toprofile;
 
 import com.tinfoiled.docopt4s.shaded.docoptjava.Docopt;
 import com.tinfoiled.docopt4s.shaded.docoptjava.DocoptExitException;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 /**
  * Counts and prints prime numbers.
@@ -25,15 +30,26 @@ public class ToProfileGo {
           "Runs some tasks that can be profiled.",
           "",
           "Usage:",
-          "  ToProfileGo sieve <max> [--super] [--happy] [--sexy] [--print] [--count]",
+          "  ToProfileGo sieve <max> [--super] [--happy] [--sexy] [--twin] [--cousin]",
+          "      [--print] [--count] [--out=FILE] [--strategy=STRATEGY] [--threads=N]",
+          "      [--cache=DIR]",
           "",
           "Options:",
-          "  -h --help   Show this screen.",
-          "  --print     Print the primes to standard out.",
-          "  --count     Print the count to standard out.",
-          "  --super     Only accept super primes.",
-          "  --happy     Only accept happy primes.",
-          "  --sexy      Only accept sexy primes.",
+          "  -h --help            Show this screen.",
+          "  --print              Print the primes to standard out.",
+          "  --count              Print the count to standard out.",
+          "  --out=FILE           Print the primes to a file instead of standard out.",
+          "  --super              Only accept super primes.",
+          "  --happy              Only accept happy primes.",
+          "  --sexy               Only accept sexy primes.",
+          "  --twin               Only accept twin primes.",
+          "  --cousin             Only accept cousin primes.",
+          "  --strategy=STRATEGY  How to find primes: trial, segmented or wheel",
+          "                       [default: segmented]",
+          "  --threads=N          The number of threads for the segmented strategies",
+          "                       [default: 1]",
+          "  --cache=DIR          Save the sieved primes in this directory, and reuse",
+          "                       them in the next run (segmented strategy only).",
           "", //
           "Commands:",
           "   sieve  Use the Sieve of Eratosthenes to find prime numbers.");
@@ -44,7 +60,8 @@ public class ToProfileGo {
    *
    * @param args command-line arguments as described in DOC .
    */
-  public static void go(String... args) throws DocoptExitException, InternalDocoptException {
+  public static void go(String... args)
+      throws DocoptExitException, InternalDocoptException, IOException {
     Map<String, Object> opts = new Docopt(DOC).withVersion(VERSION).withExit(false).parse(args);
 
     if (Boolean.parseBoolean(String.valueOf(opts.get("sieve")))) {
@@ -52,24 +69,80 @@ public class ToProfileGo {
       final int max = Integer.parseInt(String.valueOf(opts.get("<max>")));
       final boolean onlySuper = Boolean.parseBoolean(String.valueOf(opts.get("--super")));
       final boolean onlyHappy = Boolean.parseBoolean(String.valueOf(opts.get("--happy")));
-      final boolean onlySexy = Boolean.parseBoolean(String.valueOf(opts.get("--sexy")));
-      final boolean doPrint = Boolean.parseBoolean(String.valueOf(opts.get("--print")));
+      final Set<Constellation> constellations =
+          Constellation.of(
+              Boolean.parseBoolean(String.valueOf(opts.get("--twin"))),
+              Boolean.parseBoolean(String.valueOf(opts.get("--cousin"))),
+              Boolean.parseBoolean(String.valueOf(opts.get("--sexy"))));
+      final String out = (String) opts.get("--out");
+      final boolean doPrint =
+          out != null || Boolean.parseBoolean(String.valueOf(opts.get("--print")));
       final boolean doCount = Boolean.parseBoolean(String.valueOf(opts.get("--count")));
+      final Strategy strategy = Strategy.of(String.valueOf(opts.get("--strategy")));
+      final int threads = parseThreads(String.valueOf(opts.get("--threads")));
+      if (threads != 1 && strategy == Strategy.TRIAL) {
+        throw new InternalDocoptException(
+            "The threads can't be used with the trial strategy", null, DOC);
+      }
+      final String cache = (String) opts.get("--cache");
+      if (cache != null && strategy != Strategy.SEGMENTED) {
+        throw new InternalDocoptException(
+            "The cache can only be used with the segmented strategy", null, DOC);
+      }
       AtomicInteger count = new AtomicInteger(0);
 
-      sieveOfEratosthenes(
-          max,
-          onlySuper,
-          onlyHappy,
-          onlySexy,
-          prime -> {
-            if (doPrint) {
-              System.out.println(prime);
-            }
-            if (doCount) {
-              count.incrementAndGet();
+      try (PrimeWriter writer =
+          doPrint
+              ? out == null ? PrimeWriter.toStdout() : PrimeWriter.toFile(Paths.get(out))
+              : null) {
+        if (strategy == Strategy.TRIAL) {
+          sieveOfEratosthenes(
+              max,
+              onlySuper,
+              onlyHappy,
+              constellations,
+              prime -> {
+                if (doPrint) {
+                  writer.accept(prime);
+                }
+                if (doCount) {
+                  count.incrementAndGet();
+                }
+              });
+        } else {
+          // Without any filters, the count is returned without looking at any of the primes.
+          boolean unfiltered = !onlySuper && !onlyHappy && constellations.isEmpty();
+          SegmentedSieve sieve =
+              cache != null
+                  ? new PrimeCache(Paths.get(cache), max)
+                  : strategy == Strategy.WHEEL ? new WheelSieve(max) : new SegmentedSieve(max);
+          int found;
+          try {
+            found =
+                sieveOfEratosthenesInBatches(
+                    sieve,
+                    threads,
+                    onlySuper,
+                    onlyHappy,
+                    constellations,
+                    doPrint || (doCount && !unfiltered)
+                        ? (primes, length) -> {
+                          if (doPrint) {
+                            writer.accept(primes, length);
+                          }
+                          count.addAndGet(length);
+                        }
+                        : null);
+          } finally {
+            if (sieve instanceof PrimeCache) {
+              ((PrimeCache) sieve).close();
             }
-          });
+          }
+          if (unfiltered) {
+            count.set(found);
+          }
+        }
+      }
       if (doCount) {
         System.out.println("COUNT: " + count);
       }
@@ -101,6 +174,46 @@ public class ToProfileGo {
     }
   }
 
+  /**
+   * @param threads The number of threads from the command line.
+   * @return the number of threads.
+   * @throws InternalDocoptException if the number isn't a positive integer.
+   */
+  private static int parseThreads(String threads) {
+    try {
+      int parsed = Integer.parseInt(threads);
+      if (parsed > 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      throw new InternalDocoptException("Invalid number of threads: " + threads, e, DOC);
+    }
+    throw new InternalDocoptException("Invalid number of threads: " + threads, null, DOC);
+  }
+
+  /** The different algorithms that can be used to find primes. */
+  public enum Strategy {
+    /** The original, slow sieve in {@link #sieveOfEratosthenes}. */
+    TRIAL,
+    /** The bit-packed sieve in {@link #sieveOfEratosthenesSegmented}. */
+    SEGMENTED,
+    /** The bit-packed sieve using a mod 30 wheel in {@link WheelSieve}. */
+    WHEEL;
+
+    /**
+     * @param name The name of the strategy from the command line, case-insensitive.
+     * @return the strategy.
+     * @throws InternalDocoptException if the strategy doesn't exist.
+     */
+    public static Strategy of(String name) {
+      try {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new InternalDocoptException("Unknown strategy: " + name, e, DOC);
+      }
+    }
+  }
+
   /**
    * {@link com.tinfoiled.docopt4s.shaded.docoptjava.DocoptExitException} constructors are
    * protected.
@@ -127,6 +240,7 @@ public class ToProfileGo {
    * @param num The number to check.
    * @return If the candidate is a happy number.
    * @throws IllegalArgumentException if the number is zero or negative.
+   * @see HappyNumbers#isHappy(int) for a faster, table-driven version.
    */
   public static boolean isHappy(int num) {
     if (num < 1) {
@@ -163,7 +277,32 @@ public class ToProfileGo {
    */
   public static Set<Integer> sieveOfEratosthenes(
       int max, boolean onlySuper, boolean onlyHappy, boolean onlySexy, Consumer<Integer> f) {
+    return sieveOfEratosthenes(
+        max, onlySuper, onlyHappy, Constellation.of(false, false, onlySexy), f);
+  }
+
+  /**
+   * The same as {@link #sieveOfEratosthenes(int, boolean, boolean, boolean, Consumer)}, but
+   * filtering on any of the prime constellations.
+   *
+   * @param max The number to count to.
+   * @param onlySuper Only consume primes that are super (have an index that is also prime).
+   * @param onlyHappy Only consume primes that are happy.
+   * @param constellations If not empty, only consume primes that are in one of these
+   *     constellations.
+   * @param f a consumer that is called when a prime is found, after filtering.
+   * @return all of the primes found, regardless of which were consumed.
+   */
+  public static Set<Integer> sieveOfEratosthenes(
+      int max,
+      boolean onlySuper,
+      boolean onlyHappy,
+      Set<Constellation> constellations,
+      Consumer<Integer> f) {
     Set<Integer> primes = new TreeSet<>();
+    // Remembers just enough of the recent primes to know if they are in a constellation.
+    ConstellationDetector detector =
+        constellations.isEmpty() ? null : new ConstellationDetector(constellations, f::accept);
     NEXT_CANDIDATE:
     for (int candidate = 2; candidate <= max; candidate++) {
       // The "sieve" is to only check the candidate against the list of known primes (which
@@ -174,25 +313,159 @@ public class ToProfileGo {
         }
       }
       primes.add(candidate);
-      if (onlySuper && !primes.contains(primes.size())) {
-        continue;
+      boolean eligible =
+          (!onlySuper || primes.contains(primes.size())) && (!onlyHappy || isHappy(candidate));
+      if (detector != null) {
+        // The candidate might be part of a constellation even if it isn't eligible itself.
+        detector.accept(candidate, eligible);
+      } else if (eligible) {
+        f.accept(candidate);
       }
-      if (onlyHappy && !isHappy(candidate)) {
-        continue;
-      }
-      if (onlySexy) {
-        if (!primes.contains(candidate - 6)) {
-          // We may have missed a precedent sexy prime.
-          continue;
-        }
-        // If it is sexy, make sure that we printed out its partner.  Note that this means they
-        // might be accepted out of order!
-        if (candidate > 6 && !primes.contains(candidate - 12)) {
-          f.accept(candidate - 6);
-        }
-      }
-      f.accept(candidate);
+    }
+    if (detector != null) {
+      detector.flush();
     }
     return primes;
   }
+
+  /**
+   * A segmented, bit-packed version of the Sieve of Eratosthenes to find primes, sending some of
+   * the primes to a consumer. This accepts exactly the same primes in the same order as {@link
+   * #sieveOfEratosthenes}, but only uses a constant amount of memory and is many orders of
+   * magnitude faster.
+   *
+   * @param max The number to count to.
+   * @param onlySuper Only consume primes that are super (have an index that is also prime).
+   * @param onlyHappy Only consume primes that are happy.
+   * @param onlySexy Only consume primes that are sexy (differ in 6 by another prime).
+   * @param f a consumer that is called when a prime is found, after filtering.
+   * @return the number of primes found, regardless of which were consumed.
+   * @see SegmentedSieve
+   */
+  public static int sieveOfEratosthenesSegmented(
+      int max, boolean onlySuper, boolean onlyHappy, boolean onlySexy, Consumer<Integer> f) {
+    return sieveOfEratosthenesInBatches(
+        max, 1, onlySuper, onlyHappy, onlySexy, IntBatchConsumer.of(f::accept));
+  }
+
+  /**
+   * The same as {@link #sieveOfEratosthenesSegmented(int, boolean, boolean, boolean, Consumer)},
+   * but sieving and filtering the segments on many threads. The consumer is always called on the
+   * current thread and in the same order.
+   *
+   * @param max The number to count to.
+   * @param threads The number of threads to use.
+   * @param onlySuper Only consume primes that are super (have an index that is also prime).
+   * @param onlyHappy Only consume primes that are happy.
+   * @param onlySexy Only consume primes that are sexy (differ in 6 by another prime).
+   * @param f a consumer that is called when a prime is found, after filtering.
+   * @return the number of primes found, regardless of which were consumed.
+   * @see ParallelSieve
+   */
+  public static int sieveOfEratosthenesSegmented(
+      int max,
+      int threads,
+      boolean onlySuper,
+      boolean onlyHappy,
+      boolean onlySexy,
+      Consumer<Integer> f) {
+    return sieveOfEratosthenesInBatches(
+        max, threads, onlySuper, onlyHappy, onlySexy, IntBatchConsumer.of(f::accept));
+  }
+
+  /**
+   * The same as {@link #sieveOfEratosthenesSegmented(int, int, boolean, boolean, boolean,
+   * Consumer)}, but the primes are sent as primitive ints in batches, and no memory is allocated
+   * for each prime.
+   *
+   * <p>If the consumer is null, the primes are counted but never filtered or consumed. This is the
+   * fastest way to count primes.
+   *
+   * @param max The number to count to.
+   * @param threads The number of threads to use.
+   * @param onlySuper Only consume primes that are super (have an index that is also prime).
+   * @param onlyHappy Only consume primes that are happy.
+   * @param onlySexy Only consume primes that are sexy (differ in 6 by another prime).
+   * @param f a consumer that is called with batches of primes, after filtering, or null.
+   * @return the number of primes found, regardless of which were consumed.
+   * @see IntBatchConsumer#of(IntConsumer) to consume one prime at a time.
+   */
+  public static int sieveOfEratosthenesInBatches(
+      int max,
+      int threads,
+      boolean onlySuper,
+      boolean onlyHappy,
+      boolean onlySexy,
+      IntBatchConsumer f) {
+    return sieveOfEratosthenesInBatches(
+        new SegmentedSieve(max), threads, onlySuper, onlyHappy, onlySexy, f);
+  }
+
+  /**
+   * The same as {@link #sieveOfEratosthenesInBatches(int, int, boolean, boolean, boolean,
+   * IntBatchConsumer)}, using a specific sieve, like a {@link PrimeCache}.
+   *
+   * @param sieve The sieve to use, which determines the number to count to.
+   * @param threads The number of threads to use.
+   * @param onlySuper Only consume primes that are super (have an index that is also prime).
+   * @param onlyHappy Only consume primes that are happy.
+   * @param onlySexy Only consume primes that are sexy (differ in 6 by another prime).
+   * @param f a consumer that is called with batches of primes, after filtering, or null.
+   * @return the number of primes found, regardless of which were consumed.
+   */
+  public static int sieveOfEratosthenesInBatches(
+      SegmentedSieve sieve,
+      int threads,
+      boolean onlySuper,
+      boolean onlyHappy,
+      boolean onlySexy,
+      IntBatchConsumer f) {
+    return sieveOfEratosthenesInBatches(
+        sieve, threads, onlySuper, onlyHappy, Constellation.of(false, false, onlySexy), f);
+  }
+
+  /**
+   * The same as {@link #sieveOfEratosthenesInBatches(SegmentedSieve, int, boolean, boolean,
+   * boolean, IntBatchConsumer)}, but filtering on any of the prime constellations.
+   *
+   * @param sieve The sieve to use, which determines the number to count to.
+   * @param threads The number of threads to use.
+   * @param onlySuper Only consume primes that are super (have an index that is also prime).
+   * @param onlyHappy Only consume primes that are happy.
+   * @param constellations If not empty, only consume primes that are in one of these
+   *     constellations.
+   * @param f a consumer that is called with batches of primes, after filtering, or null.
+   * @return the number of primes found, regardless of which were consumed.
+   */
+  public static int sieveOfEratosthenesInBatches(
+      SegmentedSieve sieve,
+      int threads,
+      boolean onlySuper,
+      boolean onlyHappy,
+      Set<Constellation> constellations,
+      IntBatchConsumer f) {
+    if (threads != 1) {
+      return new ParallelSieve(sieve, threads, onlySuper, onlyHappy, constellations).run(f);
+    }
+    PrimeFilter filter = new PrimeFilter(onlySuper, onlyHappy, constellations);
+    PrimeBuffer accepted = f == null ? null : new PrimeBuffer();
+    long[] bits = sieve.newSegment();
+    int count = 0;
+    for (int segment = 0; segment < sieve.getSegments(); segment++) {
+      sieve.sieve(segment, bits);
+      count += filter.filter(sieve, segment, bits, count, accepted);
+      if (accepted != null) {
+        accepted.flush(f);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return a lazy stream of all of the primes that fit in an int, in ascending order.
+   * @see PrimeIterator to stop and resume iterating over the primes.
+   */
+  public static IntStream primes() {
+    return new PrimeIterator().stream();
+  }
 }
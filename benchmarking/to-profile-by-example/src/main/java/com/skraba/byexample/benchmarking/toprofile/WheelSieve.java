@@ -0,0 +1,151 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A {@link SegmentedSieve} that uses a mod 30 wheel, and only stores the numbers that aren't
+ * divisible by 2, 3 or 5.
+ *
+ * <p>Only 8 out of every 30 numbers can be prime after the first three primes, so every byte in a
+ * segment holds the candidates in a block of 30 numbers. In a sieved segment starting at {@code
+ * low}, the bit {@code 8k + i} is <b>clear</b> if the number {@code low + 30k + RESIDUES[i]} is
+ * prime. The primes 2, 3 and 5 are never stored, but are always reported with the first segment.
+ *
+ * <p>Compared to storing only the odd numbers, a segment of the same size covers almost twice as
+ * many numbers, and only the multiples of each prime that are also on the wheel are crossed out.
+ *
+ * @link <a href="https://en.wikipedia.org/wiki/Wheel_factorization">Wheel factorization</a>
+ */
+public class WheelSieve extends SegmentedSieve {
+
+  /** The numbers from 0 to 29 that aren't divisible by 2, 3 or 5. */
+  public static final int[] RESIDUES = {1, 7, 11, 13, 17, 19, 23, 29};
+
+  /** The distance from each residue to the next residue on the wheel. */
+  private static final int[] GAPS = {6, 4, 2, 4, 2, 4, 6, 2};
+
+  /** For every number mod 30, its index in the residues, or -1 if it isn't on the wheel. */
+  private static final int[] RESIDUE_INDEX = new int[30];
+
+  /** For every number from 0 to 30, the number of residues that are strictly less than it. */
+  private static final int[] RESIDUES_BELOW = new int[31];
+
+  static {
+    Arrays.fill(RESIDUE_INDEX, -1);
+    for (int i = 0; i < RESIDUES.length; i++) {
+      RESIDUE_INDEX[RESIDUES[i]] = i;
+    }
+    for (int n = 1; n <= 30; n++) {
+      RESIDUES_BELOW[n] = RESIDUES_BELOW[n - 1] + (RESIDUE_INDEX[n - 1] >= 0 ? 1 : 0);
+    }
+  }
+
+  /** The primes that aren't on the wheel. */
+  private static final int[] WHEEL_PRIMES = {2, 3, 5};
+
+  public WheelSieve(int max) {
+    this(max, DEFAULT_SEGMENT_WORDS);
+  }
+
+  /**
+   * @param max The largest number to be sieved.
+   * @param segmentWords The number of 64-bit words in each segment.
+   */
+  public WheelSieve(int max, int segmentWords) {
+    super(max, segmentWords);
+  }
+
+  /** Each 64-bit word holds 8 blocks of 30 numbers. */
+  @Override
+  public long getSpan() {
+    return getSegmentWords() * 8L * 30;
+  }
+
+  @Override
+  protected int getBits(int segment) {
+    long n = getHigh(segment) - getLow(segment);
+    return (int) (n / 30) * 8 + RESIDUES_BELOW[(int) (n % 30)];
+  }
+
+  @Override
+  public void sieve(int segment, long[] bits) {
+    long low = getLow(segment);
+    long high = getHigh(segment);
+    int nBits = getBits(segment);
+    Arrays.fill(bits, 0, (nBits + 63) >>> 6, 0L);
+    for (int p : getSievingPrimes()) {
+      if (p < 7) {
+        continue;
+      }
+      if ((long) p * p >= high) {
+        break;
+      }
+      // The smallest multiplier on the wheel that gives a multiple in the segment.
+      long q = Math.max(p, (low + p - 1) / p);
+      while (RESIDUE_INDEX[(int) (q % 30)] < 0) {
+        q++;
+      }
+      int qi = RESIDUE_INDEX[(int) (q % 30)];
+      // Only the multiples of p by a number on the wheel are also on the wheel.
+      for (long m = p * q; m < high; m += (long) p * GAPS[qi], qi = (qi + 1) & 7) {
+        long offset = m - low;
+        int j = (int) (offset / 30) * 8 + RESIDUE_INDEX[(int) (offset % 30)];
+        bits[j >>> 6] |= 1L << j;
+      }
+    }
+    // One is not a prime number.
+    if (low == 0 && nBits > 0) {
+      bits[0] |= 1L;
+    }
+    markUnused(bits, nBits);
+  }
+
+  @Override
+  public int count(int segment, long[] bits) {
+    int count = 0;
+    if (segment == 0) {
+      for (int p : WHEEL_PRIMES) {
+        if (p <= getMax()) {
+          count++;
+        }
+      }
+    }
+    for (int w = getWords(segment); --w >= 0; ) {
+      count += Long.bitCount(~bits[w]);
+    }
+    return count;
+  }
+
+  @Override
+  public void forEachPrime(int segment, long[] bits, IntConsumer f) {
+    long low = getLow(segment);
+    if (segment == 0) {
+      for (int p : WHEEL_PRIMES) {
+        if (p <= getMax()) {
+          f.accept(p);
+        }
+      }
+    }
+    int nWords = getWords(segment);
+    for (int w = 0; w < nWords; w++) {
+      long word = ~bits[w];
+      while (word != 0) {
+        int j = (w << 6) + Long.numberOfTrailingZeros(word);
+        f.accept((int) (low + 30L * (j >>> 3) + RESIDUES[j & 7]));
+        word &= word - 1;
+      }
+    }
+  }
+
+  @Override
+  public boolean isPrime(int segment, long[] bits, long n) {
+    long offset = n - getLow(segment);
+    int i = RESIDUE_INDEX[(int) (offset % 30)];
+    if (i < 0) {
+      return n == 2 || n == 3 || n == 5;
+    }
+    int j = (int) (offset / 30) * 8 + i;
+    return (bits[j >>> 6] & (1L << j)) == 0;
+  }
+}
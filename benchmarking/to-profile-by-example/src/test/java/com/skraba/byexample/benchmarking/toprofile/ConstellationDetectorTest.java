@@ -0,0 +1,94 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link ConstellationDetector}. */
+public class ConstellationDetectorTest {
+
+  /** Finds the accepted primes in the first few primes. */
+  private static List<Integer> detect(Set<Constellation> constellations, int max) {
+    List<Integer> accepted = new ArrayList<>();
+    ConstellationDetector detector = new ConstellationDetector(constellations, accepted::add);
+    ToProfileGo.primes().takeWhile(p -> p <= max).forEach(detector);
+    detector.flush();
+    return accepted;
+  }
+
+  @Test
+  public void testConstellations() {
+    assertThat(
+        detect(EnumSet.of(Constellation.TWIN), 50),
+        contains(3, 5, 7, 11, 13, 17, 19, 29, 31, 41, 43));
+    assertThat(
+        detect(EnumSet.of(Constellation.COUSIN), 50),
+        contains(3, 7, 11, 13, 17, 19, 23, 37, 41, 43, 47));
+    assertThat(
+        detect(EnumSet.of(Constellation.SEXY), 50),
+        contains(5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47));
+    assertThat(
+        detect(EnumSet.of(Constellation.TRIPLET), 50),
+        contains(5, 7, 11, 13, 17, 19, 23, 37, 41, 43, 47));
+    assertThat(
+        detect(EnumSet.of(Constellation.TWIN, Constellation.COUSIN), 50),
+        contains(3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47));
+    assertThat(detect(EnumSet.noneOf(Constellation.class), 50), empty());
+  }
+
+  @Test
+  public void testSameAsBruteForce() {
+    Set<Integer> primes = ToProfileGo.sieveOfEratosthenes(10_000, false, false, false, p -> {});
+    for (int mask = 0; mask < 16; mask++) {
+      Set<Constellation> constellations = EnumSet.noneOf(Constellation.class);
+      for (Constellation c : Constellation.values()) {
+        if ((mask & (1 << c.ordinal())) != 0) {
+          constellations.add(c);
+        }
+      }
+      List<Integer> expected = new ArrayList<>();
+      for (int p : primes) {
+        boolean accept = false;
+        for (Constellation c : constellations) {
+          int d = c.getWidth();
+          if (c == Constellation.TRIPLET) {
+            // p can be the first, middle or last prime of the triplet.
+            for (int first = p - 6; first <= p; first += 2) {
+              accept |=
+                  primes.contains(first)
+                      && primes.contains(first + 6)
+                      && (primes.contains(first + 2) || primes.contains(first + 4));
+            }
+          } else {
+            accept |= primes.contains(p - d) || primes.contains(p + d);
+          }
+        }
+        if (accept) {
+          expected.add(p);
+        }
+      }
+      assertThat("mask=" + mask, detect(constellations, 10_000), equalTo(expected));
+    }
+  }
+
+  @Test
+  public void testIneligible() {
+    // 17 isn't eligible, but 13 and 19 are still cousins and sexy with it.
+    List<Integer> accepted = new ArrayList<>();
+    ConstellationDetector detector =
+        new ConstellationDetector(
+            EnumSet.of(Constellation.COUSIN, Constellation.SEXY), accepted::add);
+    assertThat(detector.getWindow(), is(6));
+    detector.accept(13);
+    detector.accept(17, false);
+    detector.accept(19);
+    assertThat(accepted, empty());
+    detector.flush();
+    assertThat(accepted, contains(13, 19));
+  }
+}
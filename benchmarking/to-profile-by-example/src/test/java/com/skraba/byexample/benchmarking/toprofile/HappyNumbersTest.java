@@ -0,0 +1,47 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link HappyNumbers}. */
+public class HappyNumbersTest {
+
+  @Test
+  public void testSumSquareDigits() {
+    assertThat(HappyNumbers.sumSquareDigits(0), is(0));
+    assertThat(HappyNumbers.sumSquareDigits(7), is(49));
+    assertThat(HappyNumbers.sumSquareDigits(19), is(82));
+    assertThat(HappyNumbers.sumSquareDigits(1_999_999_999), is(730));
+    assertThat(
+        HappyNumbers.sumSquareDigits(Integer.MAX_VALUE),
+        is(4 + 1 + 16 + 49 + 16 + 64 + 9 + 36 + 16 + 49));
+  }
+
+  @Test
+  public void testIsHappy() {
+    assertThat(HappyNumbers.isHappy(1), is(true));
+    assertThat(HappyNumbers.isHappy(4), is(false));
+    assertThat(HappyNumbers.isHappy(7), is(true));
+    assertThat(HappyNumbers.isHappy(19), is(true));
+    assertThat(HappyNumbers.isHappy(20), is(false));
+
+    // The same as the recursive version.
+    for (int i = 1; i < 100_000; i++) {
+      assertThat("i=" + i, HappyNumbers.isHappy(i), is(ToProfileGo.isHappy(i)));
+    }
+    for (int i = Integer.MAX_VALUE; i > Integer.MAX_VALUE - 10_000; i--) {
+      assertThat("i=" + i, HappyNumbers.isHappy(i), is(ToProfileGo.isHappy(i)));
+    }
+  }
+
+  @Test
+  public void testNotHappyOrUnhappy() {
+    IllegalArgumentException ex =
+        assertThrows(IllegalArgumentException.class, () -> HappyNumbers.isHappy(0));
+    assertThat(ex.getMessage(), is("The number 0 is neither happy or unhappy."));
+    assertThrows(IllegalArgumentException.class, () -> HappyNumbers.isHappy(-1));
+  }
+}
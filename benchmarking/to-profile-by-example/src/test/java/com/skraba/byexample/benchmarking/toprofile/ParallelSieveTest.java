@@ -0,0 +1,46 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link ParallelSieve}. */
+public class ParallelSieveTest {
+
+  @Test
+  public void testManySmallSegments() {
+    // 40 segments of 256 numbers with 3 threads don't fit evenly into waves.
+    SegmentedSieve sieve = new SegmentedSieve(10_000, 2);
+    assertThat(sieve.getSegments(), is(40));
+    List<Integer> primes = new ArrayList<>();
+    assertThat(
+        new ParallelSieve(sieve, 3, false, false, false).run(IntBatchConsumer.of(primes::add)),
+        is(1_229));
+    assertThat(primes, hasSize(1_229));
+    for (int i = 1; i < primes.size(); i++) {
+      assertThat(primes.get(i), greaterThan(primes.get(i - 1)));
+    }
+
+    // The super primes depend on the count of primes in the earlier segments.
+    List<Integer> onlySuper = new ArrayList<>();
+    assertThat(
+        new ParallelSieve(sieve, 3, true, false, false).run(IntBatchConsumer.of(onlySuper::add)),
+        is(1_229));
+    List<Integer> expected = new ArrayList<>();
+    ToProfileGo.sieveOfEratosthenes(10_000, true, false, false, expected::add);
+    assertThat(onlySuper, equalTo(expected));
+  }
+
+  @Test
+  public void testBadThreads() {
+    IllegalArgumentException ex =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> new ParallelSieve(new SegmentedSieve(100), 0, false, false, false));
+    assertThat(ex.getMessage(), is("The number of threads must be positive: 0"));
+  }
+}
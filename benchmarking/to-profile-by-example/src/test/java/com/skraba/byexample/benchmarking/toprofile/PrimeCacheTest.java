@@ -0,0 +1,79 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link PrimeCache}. */
+public class PrimeCacheTest {
+
+  /**
+   * @return all of the primes found with the sieve, in batches.
+   */
+  private static List<Integer> primes(SegmentedSieve sieve, int threads) {
+    List<Integer> primes = new ArrayList<>();
+    ToProfileGo.sieveOfEratosthenesInBatches(
+        sieve, threads, false, false, false, IntBatchConsumer.of(primes::add));
+    return primes;
+  }
+
+  @Test
+  public void testCacheGrowsAndShrinks(@TempDir Path tmp) throws IOException {
+    Path dir = tmp.resolve("cache");
+    List<Integer> expected = primes(new SegmentedSieve(3_000_000), 1);
+
+    // The first run sieves everything and creates the cache.
+    try (PrimeCache cache = new PrimeCache(dir, 1_000_000)) {
+      assertThat(cache.getCachedLimit(), is(0));
+      assertThat(primes(cache, 1), equalTo(expected.subList(0, 78_498)));
+      assertThat(cache.getSieved(), is(cache.getSegments()));
+    }
+    assertThat(Files.exists(dir.resolve(PrimeCache.FILE_NAME)), is(true));
+
+    // A lower limit only reads from the cache, even when it ends in the middle of a segment.
+    try (PrimeCache cache = new PrimeCache(dir, 100_000)) {
+      assertThat(cache.getCachedLimit(), is(1_000_000));
+      assertThat(primes(cache, 1), equalTo(expected.subList(0, 9_592)));
+      assertThat(cache.getSieved(), is(0));
+    }
+
+    // A higher limit only sieves the tail, including the last, partially cached segment.
+    try (PrimeCache cache = new PrimeCache(dir, 3_000_000)) {
+      assertThat(cache.getCachedLimit(), is(1_000_000));
+      assertThat(primes(cache, 3), equalTo(expected));
+      assertThat(cache.getSieved(), is(cache.getSegments() - 1));
+    }
+
+    // And everything can be read again.
+    try (PrimeCache cache = new PrimeCache(dir, 3_000_000)) {
+      assertThat(cache.getCachedLimit(), is(3_000_000));
+      assertThat(primes(cache, 1), equalTo(expected));
+      assertThat(cache.getSieved(), is(0));
+    }
+
+    // The limit doesn't go down.
+    try (PrimeCache cache = new PrimeCache(dir, 100)) {
+      assertThat(primes(cache, 1), hasSize(25));
+    }
+    try (PrimeCache cache = new PrimeCache(dir, 100)) {
+      assertThat(cache.getCachedLimit(), is(3_000_000));
+    }
+  }
+
+  @Test
+  public void testIncompleteRunDoesNotUpdateTheLimit(@TempDir Path tmp) throws IOException {
+    try (PrimeCache cache = new PrimeCache(tmp, 3_000_000)) {
+      cache.sieve(0, cache.newSegment());
+    }
+    try (PrimeCache cache = new PrimeCache(tmp, 3_000_000)) {
+      assertThat(cache.getCachedLimit(), is(0));
+    }
+  }
+}
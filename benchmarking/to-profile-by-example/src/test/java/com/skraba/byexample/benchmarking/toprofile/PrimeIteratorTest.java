@@ -0,0 +1,74 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link PrimeIterator}. */
+public class PrimeIteratorTest {
+
+  @Test
+  public void testIterator() {
+    PrimeIterator it = new PrimeIterator();
+    assertThat(it.getCheckpoint(), is(0L));
+    assertThat(it.nextInt(), is(2));
+    assertThat(it.nextInt(), is(3));
+    assertThat(it.nextInt(), is(5));
+    assertThat(it.getCount(), is(3));
+
+    // Only the first segment was sieved to get here.
+    assertThat(it.stream().skip(78_495).findFirst().getAsInt(), is(1_000_003));
+    assertThat(it.getCount(), is(78_499));
+  }
+
+  @Test
+  public void testStream() {
+    assertThat(
+        ToProfileGo.primes().limit(10).boxed().collect(Collectors.toList()),
+        contains(2, 3, 5, 7, 11, 13, 17, 19, 23, 29));
+    assertThat(ToProfileGo.primes().takeWhile(p -> p <= 3_000_000).count(), is(216_816L));
+  }
+
+  @Test
+  public void testBoundedSieve() {
+    for (SegmentedSieve sieve :
+        new SegmentedSieve[] {new SegmentedSieve(1000, 2), new WheelSieve(1000, 2)}) {
+      PrimeIterator it = new PrimeIterator(sieve, 0L);
+      assertThat(it.stream().count(), is(168L));
+      assertThat(it.hasNext(), is(false));
+      assertThrows(NoSuchElementException.class, it::nextInt);
+    }
+  }
+
+  @Test
+  public void testCheckpoint() {
+    List<Integer> expected = new ArrayList<>();
+    ToProfileGo.sieveOfEratosthenesSegmented(10_000, false, false, false, expected::add);
+
+    // Stop and start after every prime, crossing many segment boundaries.
+    for (SegmentedSieve sieve :
+        new SegmentedSieve[] {new SegmentedSieve(10_000, 2), new WheelSieve(10_000, 2)}) {
+      List<Integer> actual = new ArrayList<>();
+      long checkpoint = 0L;
+      while (true) {
+        PrimeIterator it = new PrimeIterator(sieve, checkpoint);
+        if (!it.hasNext()) break;
+        actual.add(it.nextInt());
+        assertThat(it.getCount(), is(actual.size()));
+        checkpoint = it.getCheckpoint();
+      }
+      assertThat(actual, equalTo(expected));
+    }
+
+    // Resuming from the largest prime.
+    PrimeIterator it = new PrimeIterator(((long) 105_097_565 << 32) | Integer.MAX_VALUE);
+    assertThat(it.hasNext(), is(false));
+    assertThat(it.getCount(), is(105_097_565));
+  }
+}
@@ -0,0 +1,62 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link PrimeWriter}. */
+public class PrimeWriterTest {
+
+  @TempDir static Path tmp;
+
+  @Test
+  public void testFormatting() throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    // The smallest buffer only has room for one line.
+    try (PrimeWriter writer = new PrimeWriter(Channels.newChannel(baos), 0, false)) {
+      writer.accept(0);
+      writer.accept(7);
+      writer.accept(10);
+      writer.accept(-123);
+      writer.accept(new int[] {Integer.MAX_VALUE, Integer.MIN_VALUE, 99}, 2);
+    }
+    assertThat(
+        baos.toString(StandardCharsets.UTF_8), is("0\n7\n10\n-123\n2147483647\n-2147483648\n"));
+  }
+
+  @Test
+  public void testFlush() throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    PrimeWriter writer = new PrimeWriter(Channels.newChannel(baos), 1024, false);
+    writer.accept(2);
+    assertThat(baos.size(), is(0));
+    writer.flush();
+    assertThat(baos.toString(StandardCharsets.UTF_8), is("2\n"));
+  }
+
+  @Test
+  public void testToFile() throws IOException {
+    Path out = tmp.resolve("primes.txt");
+    Files.writeString(out, "This is replaced\n".repeat(10_000));
+    try (PrimeWriter writer = PrimeWriter.toFile(out)) {
+      IntStream.range(0, 100_000).forEach(writer);
+    }
+    List<String> lines = Files.readAllLines(out);
+    assertThat(lines, hasSize(100_000));
+    assertThat(
+        lines,
+        equalTo(
+            IntStream.range(0, 100_000).mapToObj(String::valueOf).collect(Collectors.toList())));
+  }
+}
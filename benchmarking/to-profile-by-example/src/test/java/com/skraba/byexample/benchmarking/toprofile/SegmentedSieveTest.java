@@ -0,0 +1,85 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link SegmentedSieve}. */
+public class SegmentedSieveTest {
+
+  /**
+   * @return all of the primes found by the sieve, segment by segment.
+   */
+  private static List<Integer> primes(SegmentedSieve sieve) {
+    List<Integer> primes = new ArrayList<>();
+    long[] bits = sieve.newSegment();
+    int count = 0;
+    for (int segment = 0; segment < sieve.getSegments(); segment++) {
+      sieve.sieve(segment, bits);
+      count += sieve.count(segment, bits);
+      sieve.forEachPrime(segment, bits, primes::add);
+    }
+    assertThat(primes, hasSize(count));
+    return primes;
+  }
+
+  @Test
+  public void testSmallSegments() {
+    // The smallest segment covers 256 numbers.
+    SegmentedSieve sieve = new SegmentedSieve(600, 2);
+    assertThat(sieve.getSegments(), is(3));
+    assertThat(sieve.getLow(2), is(512L));
+    assertThat(sieve.getHigh(2), is(601L));
+    List<Integer> primes = primes(sieve);
+    assertThat(primes, hasSize(109));
+    assertThat(primes.subList(0, 10), contains(2, 3, 5, 7, 11, 13, 17, 19, 23, 29));
+    assertThat(primes.get(108), is(599));
+  }
+
+  @Test
+  public void testSegmentBoundaries() {
+    // The number of primes below powers of ten, with the boundary falling in different places.
+    for (int words : new int[] {2, 3, 7, 64, SegmentedSieve.DEFAULT_SEGMENT_WORDS}) {
+      assertThat(primes(new SegmentedSieve(10, words)), hasSize(4));
+      assertThat(primes(new SegmentedSieve(100, words)), hasSize(25));
+      assertThat(primes(new SegmentedSieve(10_000, words)), hasSize(1_229));
+      assertThat(primes(new SegmentedSieve(100_000, words)), hasSize(9_592));
+    }
+    assertThat(primes(new SegmentedSieve(0)), empty());
+    assertThat(primes(new SegmentedSieve(1)), empty());
+    assertThat(primes(new SegmentedSieve(2)), contains(2));
+    assertThat(primes(new SegmentedSieve(3)), contains(2, 3));
+  }
+
+  @Test
+  public void testIsPrime() {
+    SegmentedSieve sieve = new SegmentedSieve(1_000_000);
+    assertThat(sieve.isPrime(-7), is(false));
+    assertThat(sieve.isPrime(1), is(false));
+    assertThat(sieve.isPrime(2), is(true));
+    assertThat(sieve.isPrime(999_983), is(true));
+    assertThat(sieve.isPrime(999_981), is(false));
+
+    long[] bits = sieve.newSegment();
+    sieve.sieveRange(999_900, 1_000_001, bits);
+    for (int n = 999_900; n <= 1_000_000; n++) {
+      assertThat("n=" + n, SegmentedSieve.isPrime(bits, 999_900, n), is(sieve.isPrime(n)));
+    }
+  }
+
+  @Test
+  public void testMaxInt() {
+    // The last segment goes right up to the largest int, which is prime.
+    SegmentedSieve sieve = new SegmentedSieve(Integer.MAX_VALUE);
+    long[] bits = sieve.newSegment();
+    int last = sieve.getSegments() - 1;
+    assertThat(sieve.getHigh(last), is(Integer.MAX_VALUE + 1L));
+    sieve.sieve(last, bits);
+    List<Integer> primes = new ArrayList<>();
+    sieve.forEachPrime(last, bits, primes::add);
+    assertThat(primes.get(primes.size() - 1), is(Integer.MAX_VALUE));
+  }
+}
@@ -5,12 +5,16 @@ import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.tinfoiled.docopt4s.shaded.docoptjava.DocoptExitException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /** Unit tests for {@link ToProfileGo}. */
 public class ToProfileGoTest {
@@ -85,9 +89,244 @@ public class ToProfileGoTest {
             .collect(Collectors.toList());
     assertThat(expectedAll, contains(31, 109, 331, 367, 563));
 
-    // TODO: This currently is broken!
     List<Integer> all = new ArrayList<>();
     assertThat(ToProfileGo.sieveOfEratosthenes(600, true, true, true, all::add), equalTo(primes));
-    // assertThat(all, hasSize(5));
+    assertThat(all, equalTo(expectedAll));
+  }
+
+  @Test
+  public void testSieveConstellations() {
+    // The sexy primes are accepted in order.
+    List<Integer> onlySexy = new ArrayList<>();
+    ToProfileGo.sieveOfEratosthenes(50, false, false, true, onlySexy::add);
+    assertThat(onlySexy, contains(5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47));
+
+    for (int max : new int[] {0, 3, 5, 7, 100, 600, 5000}) {
+      for (int filters = 0; filters < 8; filters++) {
+        Set<Constellation> constellations =
+            Constellation.of((filters & 1) != 0, (filters & 2) != 0, (filters & 4) != 0);
+        List<Integer> expected = new ArrayList<>();
+        ToProfileGo.sieveOfEratosthenes(max, false, true, constellations, expected::add);
+        for (int threads : new int[] {1, 3}) {
+          for (SegmentedSieve sieve :
+              new SegmentedSieve[] {new SegmentedSieve(max, 2), new WheelSieve(max, 2)}) {
+            List<Integer> actual = new ArrayList<>();
+            ToProfileGo.sieveOfEratosthenesInBatches(
+                sieve, threads, false, true, constellations, IntBatchConsumer.of(actual::add));
+            assertThat("max=" + max + " filters=" + filters, actual, equalTo(expected));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testGoTwinCousin(@TempDir Path tmp) throws IOException {
+    Path out = tmp.resolve("primes.txt");
+    ToProfileGo.go("sieve", "50", "--twin", "--cousin", "--out=" + out);
+    assertThat(
+        Files.readAllLines(out).stream().map(Integer::valueOf).collect(Collectors.toList()),
+        contains(3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47));
+  }
+
+  @Test
+  public void testSieveSegmented() {
+    List<Integer> consumer = new ArrayList<>();
+    assertThat(
+        ToProfileGo.sieveOfEratosthenesSegmented(600, false, false, false, consumer::add), is(109));
+    assertThat(consumer, hasSize(109));
+    assertThat(
+        consumer,
+        contains(ToProfileGo.sieveOfEratosthenes(600, false, false, false, p -> {}).toArray()));
+
+    // Large enough to cross segment boundaries
+    assertThat(
+        ToProfileGo.sieveOfEratosthenesSegmented(1_000_000, false, false, false, p -> {}),
+        is(78_498));
+    assertThat(ToProfileGo.sieveOfEratosthenesSegmented(1, false, false, false, p -> {}), is(0));
+    assertThat(ToProfileGo.sieveOfEratosthenesSegmented(2, false, false, false, p -> {}), is(1));
+  }
+
+  @Test
+  public void testSieveSegmentedSameAsTrial() {
+    for (int max : new int[] {0, 1, 2, 3, 5, 6, 7, 11, 12, 13, 100, 600, 5000}) {
+      for (int filters = 0; filters < 8; filters++) {
+        boolean onlySuper = (filters & 1) != 0;
+        boolean onlyHappy = (filters & 2) != 0;
+        boolean onlySexy = (filters & 4) != 0;
+        List<Integer> expected = new ArrayList<>();
+        List<Integer> actual = new ArrayList<>();
+        Set<Integer> primes =
+            ToProfileGo.sieveOfEratosthenes(max, onlySuper, onlyHappy, onlySexy, expected::add);
+        assertThat(
+            ToProfileGo.sieveOfEratosthenesSegmented(
+                max, onlySuper, onlyHappy, onlySexy, actual::add),
+            is(primes.size()));
+        assertThat("max=" + max + " filters=" + filters, actual, equalTo(expected));
+      }
+    }
+  }
+
+  @Test
+  public void testStrategy() {
+    assertThat(ToProfileGo.Strategy.of("trial"), is(ToProfileGo.Strategy.TRIAL));
+    assertThat(ToProfileGo.Strategy.of("Segmented"), is(ToProfileGo.Strategy.SEGMENTED));
+    assertThat(ToProfileGo.Strategy.of("WHEEL"), is(ToProfileGo.Strategy.WHEEL));
+    ToProfileGo.InternalDocoptException ex =
+        assertThrows(
+            ToProfileGo.InternalDocoptException.class,
+            () -> ToProfileGo.go("sieve", "100", "--strategy=garbage"));
+    assertThat(ex.getMessage(), is("Unknown strategy: garbage"));
+  }
+
+  @Test
+  public void testThreads() {
+    ToProfileGo.InternalDocoptException ex =
+        assertThrows(
+            ToProfileGo.InternalDocoptException.class,
+            () -> ToProfileGo.go("sieve", "100", "--threads=x"));
+    assertThat(ex.getMessage(), is("Invalid number of threads: x"));
+    assertThat(ex.getDocopt(), is(ToProfileGo.DOC));
+    ex =
+        assertThrows(
+            ToProfileGo.InternalDocoptException.class,
+            () -> ToProfileGo.go("sieve", "100", "--threads=0"));
+    assertThat(ex.getMessage(), is("Invalid number of threads: 0"));
+    ex =
+        assertThrows(
+            ToProfileGo.InternalDocoptException.class,
+            () -> ToProfileGo.go("sieve", "100", "--strategy=trial", "--threads=2"));
+    assertThat(ex.getMessage(), is("The threads can't be used with the trial strategy"));
+  }
+
+  @Test
+  public void testSieveParallelSameAsSegmented() {
+    for (int max : new int[] {0, 2, 600, 100_000, 3_000_000}) {
+      for (int filters = 0; filters < 8; filters++) {
+        boolean onlySuper = (filters & 1) != 0;
+        boolean onlyHappy = (filters & 2) != 0;
+        boolean onlySexy = (filters & 4) != 0;
+        List<Integer> expected = new ArrayList<>();
+        List<Integer> actual = new ArrayList<>();
+        int count =
+            ToProfileGo.sieveOfEratosthenesSegmented(
+                max, onlySuper, onlyHappy, onlySexy, expected::add);
+        assertThat(
+            ToProfileGo.sieveOfEratosthenesSegmented(
+                max, 3, onlySuper, onlyHappy, onlySexy, actual::add),
+            is(count));
+        assertThat("max=" + max + " filters=" + filters, actual, equalTo(expected));
+      }
+    }
+  }
+
+  @Test
+  public void testSieveBatches() {
+    List<Integer> expected = new ArrayList<>();
+    ToProfileGo.sieveOfEratosthenesSegmented(3_000_000, false, true, false, expected::add);
+
+    for (int threads : new int[] {1, 3}) {
+      // Primitive ints arrive in batches of one segment or less.
+      List<Integer> actual = new ArrayList<>();
+      int[] batches = {0};
+      assertThat(
+          ToProfileGo.sieveOfEratosthenesInBatches(
+              3_000_000,
+              threads,
+              false,
+              true,
+              false,
+              (primes, length) -> {
+                batches[0]++;
+                for (int i = 0; i < length; i++) actual.add(primes[i]);
+              }),
+          is(216_816));
+      assertThat(actual, equalTo(expected));
+      assertThat(batches[0], is(6));
+
+      // Or one at a time.
+      actual.clear();
+      ToProfileGo.sieveOfEratosthenesInBatches(
+          3_000_000, threads, false, true, false, IntBatchConsumer.of(actual::add));
+      assertThat(actual, equalTo(expected));
+
+      // Without a consumer, only the count is returned.
+      assertThat(
+          ToProfileGo.sieveOfEratosthenesInBatches(
+              3_000_000, threads, true, true, true, (IntBatchConsumer) null),
+          is(216_816));
+    }
+  }
+
+  @Test
+  public void testGoOut(@TempDir Path tmp) throws IOException {
+    for (String strategy : new String[] {"trial", "segmented"}) {
+      Path out = tmp.resolve(strategy + ".txt");
+      ToProfileGo.go("sieve", "600", "--sexy", "--strategy=" + strategy, "--out=" + out);
+      List<Integer> expected = new ArrayList<>();
+      ToProfileGo.sieveOfEratosthenes(600, false, false, true, expected::add);
+      assertThat(
+          Files.readAllLines(out).stream().map(Integer::valueOf).collect(Collectors.toList()),
+          equalTo(expected));
+    }
+  }
+
+  @Test
+  public void testGoCache(@TempDir Path tmp) throws IOException {
+    Path out = tmp.resolve("primes.txt");
+    ToProfileGo.go("sieve", "1000", "--super", "--cache=" + tmp.resolve("cache"), "--out=" + out);
+    ToProfileGo.go("sieve", "600", "--super", "--cache=" + tmp.resolve("cache"), "--out=" + out);
+    List<Integer> expected = new ArrayList<>();
+    ToProfileGo.sieveOfEratosthenes(600, true, false, false, expected::add);
+    assertThat(
+        Files.readAllLines(out).stream().map(Integer::valueOf).collect(Collectors.toList()),
+        equalTo(expected));
+
+    // The cache can't be used with the other strategies, and the output isn't touched.
+    for (String strategy : new String[] {"trial", "wheel"}) {
+      ToProfileGo.InternalDocoptException ex =
+          assertThrows(
+              ToProfileGo.InternalDocoptException.class,
+              () ->
+                  ToProfileGo.go(
+                      "sieve",
+                      "100",
+                      "--strategy=" + strategy,
+                      "--cache=" + tmp.resolve("cache"),
+                      "--out=" + out));
+      assertThat(ex.getMessage(), is("The cache can only be used with the segmented strategy"));
+      assertThat(
+          Files.readAllLines(out).stream().map(Integer::valueOf).collect(Collectors.toList()),
+          equalTo(expected));
+    }
+  }
+
+  @Test
+  public void testSieveWheelSameAsSegmented() {
+    for (int max : new int[] {0, 7, 600, 100_000, 3_000_000}) {
+      for (int filters = 0; filters < 8; filters++) {
+        boolean onlySuper = (filters & 1) != 0;
+        boolean onlyHappy = (filters & 2) != 0;
+        boolean onlySexy = (filters & 4) != 0;
+        List<Integer> expected = new ArrayList<>();
+        List<Integer> actual = new ArrayList<>();
+        int count =
+            ToProfileGo.sieveOfEratosthenesSegmented(
+                max, onlySuper, onlyHappy, onlySexy, expected::add);
+        for (int threads : new int[] {1, 3}) {
+          actual.clear();
+          assertThat(
+              ToProfileGo.sieveOfEratosthenesInBatches(
+                  new WheelSieve(max),
+                  threads,
+                  onlySuper,
+                  onlyHappy,
+                  onlySexy,
+                  IntBatchConsumer.of(actual::add)),
+              is(count));
+          assertThat("max=" + max + " filters=" + filters, actual, equalTo(expected));
+        }
+      }
+    }
   }
 }
@@ -0,0 +1,78 @@
+package com.skraba.byexample.benchmarking.toprofile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link WheelSieve}. */
+public class WheelSieveTest {
+
+  /**
+   * @return all of the primes found by the sieve, segment by segment.
+   */
+  private static List<Integer> primes(SegmentedSieve sieve) {
+    List<Integer> primes = new ArrayList<>();
+    long[] bits = sieve.newSegment();
+    int count = 0;
+    for (int segment = 0; segment < sieve.getSegments(); segment++) {
+      sieve.sieve(segment, bits);
+      count += sieve.count(segment, bits);
+      sieve.forEachPrime(segment, bits, primes::add);
+    }
+    assertThat(primes, hasSize(count));
+    return primes;
+  }
+
+  @Test
+  public void testSmallSegments() {
+    // The smallest segment covers 480 numbers.
+    WheelSieve sieve = new WheelSieve(1000, 2);
+    assertThat(sieve.getSegments(), is(3));
+    assertThat(sieve.getLow(2), is(960L));
+    assertThat(sieve.getHigh(2), is(1001L));
+    List<Integer> primes = primes(sieve);
+    assertThat(primes, hasSize(168));
+    assertThat(primes.subList(0, 10), contains(2, 3, 5, 7, 11, 13, 17, 19, 23, 29));
+    assertThat(primes.get(167), is(997));
+  }
+
+  @Test
+  public void testSameAsSegmented() {
+    for (int max : new int[] {0, 1, 2, 3, 4, 5, 6, 7, 29, 30, 31, 49, 1000, 123_457}) {
+      for (int words : new int[] {2, 3, 7, SegmentedSieve.DEFAULT_SEGMENT_WORDS}) {
+        assertThat(
+            "max=" + max + " words=" + words,
+            primes(new WheelSieve(max, words)),
+            equalTo(primes(new SegmentedSieve(max, words))));
+      }
+    }
+    assertThat(primes(new WheelSieve(3_000_000)), hasSize(216_816));
+  }
+
+  @Test
+  public void testIsPrime() {
+    WheelSieve sieve = new WheelSieve(10_000, 2);
+    long[] bits = sieve.newSegment();
+    for (int segment = 0; segment < sieve.getSegments(); segment++) {
+      sieve.sieve(segment, bits);
+      for (long n = sieve.getLow(segment); n < sieve.getHigh(segment); n++) {
+        assertThat("n=" + n, sieve.isPrime(segment, bits, n), is(sieve.isPrime(n)));
+      }
+    }
+  }
+
+  @Test
+  public void testMaxInt() {
+    WheelSieve sieve = new WheelSieve(Integer.MAX_VALUE);
+    long[] bits = sieve.newSegment();
+    int last = sieve.getSegments() - 1;
+    assertThat(sieve.getHigh(last), is(Integer.MAX_VALUE + 1L));
+    sieve.sieve(last, bits);
+    List<Integer> primes = new ArrayList<>();
+    sieve.forEachPrime(last, bits, primes::add);
+    assertThat(primes.get(primes.size() - 1), is(Integer.MAX_VALUE));
+  }
+}
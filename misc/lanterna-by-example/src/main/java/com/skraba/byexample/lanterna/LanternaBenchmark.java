@@ -0,0 +1,149 @@
+package com.skraba.byexample.lanterna;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmarks the rendering of the {@link LanternaGo} demos by replaying them without any delays on
+ * a {@link RecordingTerminal}.
+ *
+ * <p>Every invocation replays a whole demo, and a frame is counted every time the terminal is
+ * flushed. The {@code frames} auxiliary counter is the average time per frame, which includes
+ * keeping the in-memory screen up to date. Running this class instead of the JMH main also prints
+ * the number of bytes and cursor moves that would be sent to a real terminal for each frame.
+ *
+ * <pre>
+ * java -cp $(find ~+ -name lanterna-by-example-*.jar) \
+ *     com.skraba.byexample.lanterna.LanternaBenchmark -f 1 -wi 3 -i 5
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class LanternaBenchmark {
+
+  /** The size of the terminal for all of the demos. */
+  public static final TerminalSize SIZE = new TerminalSize(80, 24);
+
+  @Param({"hacker", "listener", "dashboard"})
+  String demo;
+
+  /** Counted as operations, so the score is the time per frame. */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Frames {
+    public long frames;
+  }
+
+  @Benchmark
+  public RecordingTerminal replay(Frames frames) throws IOException, InterruptedException {
+    RecordingTerminal term = replay(demo);
+    frames.frames += term.getFlushes();
+    return term;
+  }
+
+  /** Runs the benchmark with the usual JMH options, then prints the cost of every frame. */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    try {
+      Collection<RunResult> results =
+          new Runner(
+                  new OptionsBuilder()
+                      .parent(new CommandLineOptions(args))
+                      .include(LanternaBenchmark.class.getName())
+                      .build())
+              .run();
+      report(results, System.out);
+    } catch (CommandLineOptionException e) {
+      System.err.println(e.getMessage());
+      System.exit(2);
+    } catch (RunnerException e) {
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Prints the number of frames in every demo, the bytes sent per frame and the time per frame.
+   * Every replay is identical, so the bytes are counted from a single replay outside of JMH.
+   *
+   * @param results The results of the benchmark.
+   * @param out Where to print the report.
+   */
+  static void report(Collection<RunResult> results, PrintStream out)
+      throws IOException, InterruptedException {
+    out.printf(
+        Locale.ROOT,
+        "%-10s %8s %12s %12s %14s%n",
+        "Demo",
+        "Frames",
+        "Bytes/frame",
+        "Moves/frame",
+        "Time/frame");
+    for (RunResult result : results) {
+      String demo = result.getParams().getParam("demo");
+      RecordingTerminal term = replay(demo);
+      Result<?> time = result.getSecondaryResults().get("frames");
+      out.printf(
+          Locale.ROOT,
+          "%-10s %8d %12.1f %12.1f %14s%n",
+          demo,
+          term.getFlushes(),
+          (double) term.getBytes() / term.getFlushes(),
+          (double) term.getCursorMoves() / term.getFlushes(),
+          time == null
+              ? "-"
+              : String.format(Locale.ROOT, "%.3f %s", time.getScore(), time.getScoreUnit()));
+    }
+  }
+
+  /**
+   * @param demo The demo to replay: hacker, listener or dashboard.
+   * @return the terminal with everything that was rendered.
+   */
+  public static RecordingTerminal replay(String demo) throws IOException, InterruptedException {
+    RecordingTerminal term = new RecordingTerminal(SIZE);
+    switch (demo) {
+      case "hacker":
+        LanternaGo.goHollywoodHacking(term, 0);
+        break;
+      case "listener":
+        // Fill the progress bars past 100%, back down a bit, then quit.
+        for (int i = 0; i < 60; i++) {
+          term.addInput(new KeyStroke(KeyType.ArrowRight, false, false, true));
+        }
+        for (int i = 0; i < 10; i++) {
+          term.addInput(new KeyStroke(KeyType.ArrowLeft, false, false, true));
+        }
+        term.addInput(new KeyStroke(KeyType.Escape));
+        LanternaGo.goListeners(term);
+        break;
+      case "dashboard":
+        LanternaGo.goDashboard(term, 0);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown demo: " + demo);
+    }
+    return term;
+  }
+}
@@ -10,12 +10,14 @@ import com.googlecode.lanterna.terminal.DefaultTerminalFactory;
 import com.googlecode.lanterna.terminal.Terminal;
 import com.skraba.byexample.lanterna.progress.BarProgress;
 import com.skraba.byexample.lanterna.progress.PercentProgress;
+import com.skraba.byexample.lanterna.progress.ProgressDashboard;
 import com.skraba.byexample.lanterna.progress.ProgressMonitor;
 import com.skraba.byexample.misc.ClrsCc;
 import com.tinfoiled.docopt4s.shaded.docoptjava.Docopt;
 import com.tinfoiled.docopt4s.shaded.docoptjava.DocoptExitException;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /** Some examples of rich console applications using the Lanterna library. */
 public class LanternaGo {
@@ -28,7 +30,8 @@ public class LanternaGo {
           "Runs rich console examples using Lanterna.",
           "",
           "Usage:",
-          "  LanternaGo [--speed=SPEED] [--private] [--emulator] [hacker|listener]",
+          "  LanternaGo [--speed=SPEED] [--private] [--emulator]",
+          "      [hacker|listener|dashboard]",
           "",
           "Options:",
           "  -h --help      Show this screen.",
@@ -38,7 +41,8 @@ public class LanternaGo {
           "",
           "Commands:",
           "   hacker  Outputs a non-interactive hollywood hacking scenario.",
-          " listener  Demonstrates listening to keystrokes in a private window.");
+          " listener  Demonstrates listening to keystrokes in a private window.",
+          "dashboard  Shows the progress, throughput and ETA of simulated tasks.");
 
   /**
    * Runs the tool. This does not handle any docopt exception automatically while parsing the
@@ -67,6 +71,8 @@ public class LanternaGo {
       try {
         if (opts.get("hacker").equals(true)) {
           goHollywoodHacking(term, speed);
+        } else if (opts.get("dashboard").equals(true)) {
+          goDashboard(term, speed);
         } else {
           goListeners(term);
         }
@@ -127,7 +133,7 @@ public class LanternaGo {
    * @throws IOException If a problem occurs during terminal IO.
    * @throws InterruptedException If a problem occurs while the thread is animating the response.
    */
-  private static void goHollywoodHacking(final Terminal term, final int sleep)
+  static void goHollywoodHacking(final Terminal term, final int sleep)
       throws IOException, InterruptedException {
 
     final Random rnd = new Random(0L);
@@ -178,7 +184,7 @@ public class LanternaGo {
     for (char c : "Administrator".toCharArray()) {
       term.putCharacter(c);
       term.flush();
-      Thread.sleep(sleep + rnd.nextInt(sleep));
+      Thread.sleep(sleep + rnd.nextInt(Math.max(1, sleep)));
     }
 
     // Because we want to support both private and interactive mode, we add a newline
@@ -195,7 +201,7 @@ public class LanternaGo {
     for (char c : "joshua".toCharArray()) {
       term.putCharacter(c);
       term.flush();
-      Thread.sleep(sleep + rnd.nextInt(sleep));
+      Thread.sleep(sleep + rnd.nextInt(Math.max(1, sleep)));
       // Overwrite the displayed text cause it's more secure.
       term.setCursorPosition(term.getCursorPosition().withRelativeColumn(-1));
       term.putCharacter('*');
@@ -236,6 +242,14 @@ public class LanternaGo {
         (hacking.length - hackingMsg.length()) / 2,
         hackingMsg.length());
 
+    // The banner and the token change on every frame, so they are drawn into a buffer that only
+    // sends the changed cells to the terminal.
+    ScreenBuffer buffer =
+        new ScreenBuffer(
+            term, hackingPosition.withColumn(0), new TerminalSize(size.getColumns(), 2));
+    TextGraphics graphics = buffer.newTextGraphics();
+    int tokenColumn = secureTokenPosition.getColumn();
+
     // Number of characters in the key, and whether they've been hacked yet.
     boolean[] stable = new boolean[20];
     int hackAttemptsPer = 5;
@@ -243,16 +257,15 @@ public class LanternaGo {
     for (int i = stable.length * hackAttemptsPer; --i >= 0; ) {
       // The flickering red hack message to increase efficiency.
       int redRange = (int) (255 * i / (stable.length * hackAttemptsPer - 1d));
-      term.enableSGR(SGR.BOLD);
-      term.enableSGR(SGR.REVERSE);
-      term.setCursorPosition(hackingPosition);
-      for (char c : hacking) {
-        term.setForegroundColor(new RGB(255 - (redRange <= 0 ? 0 : rnd.nextInt(redRange)), 0, 0));
-        term.putCharacter(c);
+      graphics.enableModifiers(SGR.BOLD, SGR.REVERSE);
+      for (int col = 0; col < hacking.length; col++) {
+        graphics.setForegroundColor(
+            new RGB(255 - (redRange <= 0 ? 0 : rnd.nextInt(redRange)), 0, 0));
+        graphics.setCharacter(col, 0, hacking[col]);
       }
 
-      term.disableSGR(SGR.REVERSE);
-      term.setForegroundColor(ANSI.YELLOW);
+      graphics.disableModifiers(SGR.REVERSE);
+      graphics.setForegroundColor(ANSI.YELLOW);
 
       // Just solve one digit every once in a while in any order.  That's how all of this works.
       if (i % hackAttemptsPer == 0) {
@@ -260,19 +273,17 @@ public class LanternaGo {
         while (stable[newStable]) {
           newStable = (newStable + 1) % stable.length;
         }
-        term.setCursorPosition(secureTokenPosition.withRelativeColumn(newStable));
-        term.putCharacter((char) ('0' + rnd.nextInt(10)));
+        graphics.setCharacter(tokenColumn + newStable, 1, (char) ('0' + rnd.nextInt(10)));
         stable[newStable] = true;
       }
 
-      term.disableSGR(SGR.BOLD);
+      graphics.disableModifiers(SGR.BOLD);
       for (int j = 0; j < stable.length; j++) {
         if (!stable[j]) {
-          term.setCursorPosition(secureTokenPosition.withRelativeColumn(j));
-          term.putCharacter((char) ('0' + rnd.nextInt(10)));
+          graphics.setCharacter(tokenColumn + j, 1, (char) ('0' + rnd.nextInt(10)));
         }
       }
-      term.flush();
+      buffer.flush();
       Thread.sleep(sleep);
     }
 
@@ -284,19 +295,16 @@ public class LanternaGo {
         hacking,
         (hacking.length - hackingMsg.length()) / 2,
         hackingMsg.length());
-    term.enableSGR(SGR.BOLD);
-    term.enableSGR(SGR.REVERSE);
-    term.setCursorPosition(hackingPosition);
-    term.setForegroundColor(ANSI.GREEN);
-    for (char c : hacking) {
-      term.putCharacter(c);
-    }
-    term.flush();
+    graphics.enableModifiers(SGR.BOLD, SGR.REVERSE);
+    graphics.setForegroundColor(ANSI.GREEN);
+    graphics.putString(0, 0, new String(hacking));
+    buffer.flush();
 
+    // Continue writing directly to the terminal after the token.
+    term.setCursorPosition(secureTokenPosition.withRelativeColumn(stable.length));
     term.resetColorAndSGR();
     term.putCharacter('\n');
     term.putCharacter('\n');
-    term.putCharacter('\n');
     term.putString("Welcome!");
     term.flush();
     term.setCursorVisible(true);
@@ -309,15 +317,17 @@ public class LanternaGo {
    * @param term The terminal to use.
    * @throws IOException If a problem occurs during terminal IO.
    */
-  private static void goListeners(final Terminal term) throws IOException {
+  static void goListeners(final Terminal term) throws IOException {
 
     // Clear the screen
     term.clearScreen();
     term.setCursorVisible(false);
 
-    // A bit simpler to use then putting characters to the terminal.
-    final TextGraphics textGraphics = term.newTextGraphics();
-    final TerminalSize terminalSize = term.getTerminalSize();
+    // A bit simpler to use then putting characters to the terminal.  Everything is drawn into a
+    // buffer, which only sends the changes to the terminal when it is flushed.
+    final ScreenBuffer buffer = new ScreenBuffer(term);
+    final TextGraphics textGraphics = buffer.newTextGraphics();
+    final TerminalSize terminalSize = buffer.getSize();
 
     int tickCount = 0;
     int tickTotal = 57;
@@ -340,8 +350,9 @@ public class LanternaGo {
     {
       String msg = "Processing file:";
       textGraphics.putString(0, row, msg, SGR.BOLD);
-      term.flush();
-      progress.add(new PercentProgress(term, new TerminalPosition(msg.length() + 1, row)));
+      progress.add(
+          new PercentProgress(
+              buffer.newTextGraphics(), new TerminalPosition(msg.length() + 1, row)));
     }
     row++;
     // Set up the progress bar.
@@ -350,7 +361,9 @@ public class LanternaGo {
       textGraphics.putString(terminalSize.getColumns() - 1, row, "]", SGR.BOLD);
       progress.add(
           new BarProgress(
-              term.newTextGraphics(), new TerminalPosition(1, row), terminalSize.getColumns() - 2));
+              buffer.newTextGraphics(),
+              new TerminalPosition(1, row),
+              terminalSize.getColumns() - 2));
     }
     row++;
     // Set up the progress bar with overcount
@@ -359,7 +372,7 @@ public class LanternaGo {
       textGraphics.putString(terminalSize.getColumns() - 1, row, ">", SGR.BOLD);
       progress.add(
           new BarProgress(
-              term.newTextGraphics(),
+              buffer.newTextGraphics(),
               new TerminalPosition(1, row),
               terminalSize.getColumns() - 2,
               true));
@@ -371,7 +384,7 @@ public class LanternaGo {
       textGraphics.putString(terminalSize.getColumns() - 1, row, "]", SGR.BOLD);
       progress.add(
           new BarProgress(
-              term.newTextGraphics(),
+              buffer.newTextGraphics(),
               new TerminalPosition(1, row),
               terminalSize.getColumns() - 2,
               TextCharacter.fromCharacter(' ', TextColor.ANSI.DEFAULT, TextColor.ANSI.BLUE)[0],
@@ -379,16 +392,33 @@ public class LanternaGo {
               TextCharacter.fromCharacter(' ', TextColor.ANSI.DEFAULT, TextColor.ANSI.DEFAULT)[0]));
     }
     row++;
+    // Set up the progress bar in high resolution
+    {
+      textGraphics.putString(0, row, "[", SGR.BOLD);
+      textGraphics.putString(terminalSize.getColumns() - 1, row, "]", SGR.BOLD);
+      progress.add(
+          new BarProgress(
+              buffer.newTextGraphics(),
+              new TerminalPosition(1, row),
+              terminalSize.getColumns() - 2,
+              TextCharacter.fromCharacter(' ', TextColor.ANSI.CYAN, TextColor.ANSI.DEFAULT)[0],
+              TextCharacter.fromCharacter(' ', TextColor.ANSI.DEFAULT, TextColor.ANSI.DEFAULT)[0],
+              true));
+    }
+    row++;
 
     // Set up a resize listener on a different thread.
     term.addResizeListener(
         (terminal, newSize) -> {
+          buffer.resize(newSize);
           ((BarProgress) progress.get(1)).setBarSize(newSize.getColumns() - 2);
           textGraphics.putString(newSize.getColumns() - 1, 1, "]", SGR.BOLD);
           ((BarProgress) progress.get(2)).setBarSize(newSize.getColumns() - 2);
           textGraphics.putString(newSize.getColumns() - 1, 2, ">", SGR.BOLD);
           ((BarProgress) progress.get(3)).setBarSize(newSize.getColumns() - 2);
           textGraphics.putString(newSize.getColumns() - 1, 3, "]", SGR.BOLD);
+          ((BarProgress) progress.get(4)).setBarSize(newSize.getColumns() - 2);
+          textGraphics.putString(newSize.getColumns() - 1, 4, "]", SGR.BOLD);
         });
 
     // Do a blocking read on keyboard input and update the progress.
@@ -400,6 +430,7 @@ public class LanternaGo {
       for (ProgressMonitor p : progress) {
         p.tick(tickCount, tickTotal);
       }
+      buffer.flush();
 
       keyStroke = term.readInput();
       if (keyStroke != null) {
@@ -433,4 +464,75 @@ public class LanternaGo {
 
     } while (keyStroke.getKeyType() != KeyType.Escape);
   }
+
+  /**
+   * Demonstrate a {@link ProgressDashboard} with simulated tasks that start and finish at different
+   * times.
+   *
+   * @param term The terminal to use.
+   * @param sleep The time between frames, smaller is faster. The simulated time always advances
+   *     100ms per frame, so the rates and ETAs don't depend on the speed.
+   * @throws IOException If a problem occurs during terminal IO.
+   * @throws InterruptedException If a problem occurs while the thread is animating the response.
+   */
+  static void goDashboard(final Terminal term, final int sleep)
+      throws IOException, InterruptedException {
+
+    final Random rnd = new Random(0L);
+    term.clearScreen();
+    term.setCursorVisible(false);
+
+    final ScreenBuffer buffer = new ScreenBuffer(term);
+    final TextGraphics textGraphics = buffer.newTextGraphics();
+    textGraphics.putString(0, 0, "Task dashboard", SGR.BOLD);
+    final ProgressDashboard dashboard =
+        new ProgressDashboard(
+            textGraphics, new TerminalPosition(0, 2), buffer.getSize().getColumns());
+
+    // The simulated tasks, with the number of items, bytes per item and frames to finish.
+    String[] names = {
+      "Renaming files", "Sieving primes", "Rendering video", "Copying backups", "Indexing"
+    };
+    long[] totals = {500, 20000, 300, 800, 1200};
+    long[] itemBytes = {300, 8, 250_000, 40_000, 2_000};
+    int[] frames = {40, 120, 90, 60, 70};
+
+    ProgressDashboard.Task[] tasks = new ProgressDashboard.Task[names.length];
+    int[] finished = new int[names.length];
+    int started = 0;
+    int removed = 0;
+    for (int frame = 0; removed < names.length; frame++) {
+      // Start a new task every 15 frames.
+      if (started < names.length && frame % 15 == 0) {
+        tasks[started] = dashboard.addTask(names[started], totals[started]);
+        started++;
+      }
+
+      for (int i = 0; i < started; i++) {
+        if (tasks[i] == null) {
+          continue;
+        }
+        long remaining = tasks[i].getTotal() - tasks[i].getItems();
+        if (remaining > 0) {
+          // A random amount of work, averaging out to finish in the expected number of frames.
+          long items = Math.min(remaining, rnd.nextInt((int) (2 * totals[i] / frames[i]) + 1));
+          tasks[i].add(items, items * itemBytes[i]);
+          finished[i] = frame;
+        } else if (frame - finished[i] > 10) {
+          // Leave finished tasks on the screen for a second.
+          dashboard.removeTask(tasks[i]);
+          tasks[i] = null;
+          removed++;
+        }
+      }
+
+      dashboard.render(frame * TimeUnit.MILLISECONDS.toNanos(100));
+      buffer.flush();
+      Thread.sleep(sleep);
+    }
+
+    textGraphics.putString(0, 2, "All tasks are finished.");
+    buffer.flush();
+    term.setCursorVisible(true);
+  }
 }
@@ -0,0 +1,235 @@
+package com.skraba.byexample.lanterna;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.terminal.AbstractTerminal;
+import com.googlecode.lanterna.terminal.ansi.ANSITerminal;
+import com.googlecode.lanterna.terminal.virtual.DefaultVirtualTerminal;
+import com.googlecode.lanterna.terminal.virtual.VirtualTerminal;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A headless terminal that counts what an application would send to a real one, to measure the cost
+ * of rendering without a TTY.
+ *
+ * <p>Every call is encoded with the same ANSI escape sequences as a Unix terminal and the bytes are
+ * counted, then discarded. The state of the screen (the size, cursor position, contents and input)
+ * is kept in a {@link VirtualTerminal}, so applications that read the cursor position or wait for
+ * keystrokes behave the same as on a real terminal.
+ */
+public class RecordingTerminal extends AbstractTerminal {
+
+  /** The state of the screen. */
+  private final DefaultVirtualTerminal virtual;
+
+  /** Encodes every call as it would be sent to a real terminal. */
+  private final ANSITerminal ansi;
+
+  private long bytes;
+  private long flushes;
+  private long cursorMoves;
+  private long characters;
+
+  /**
+   * @param size The size of the terminal.
+   */
+  public RecordingTerminal(TerminalSize size) {
+    this.virtual = new DefaultVirtualTerminal(size);
+    OutputStream counter =
+        new OutputStream() {
+          @Override
+          public void write(int b) {
+            bytes++;
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) {
+            bytes += len;
+          }
+        };
+    this.ansi =
+        new ANSITerminal(new ByteArrayInputStream(new byte[0]), counter, StandardCharsets.UTF_8) {};
+  }
+
+  /**
+   * @return the number of bytes that would have been sent to the terminal.
+   */
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * @return the number of times the terminal was flushed, usually once per frame.
+   */
+  public synchronized long getFlushes() {
+    return flushes;
+  }
+
+  /**
+   * @return the number of times the cursor was explicitly moved.
+   */
+  public synchronized long getCursorMoves() {
+    return cursorMoves;
+  }
+
+  /**
+   * @return the number of characters put to the terminal.
+   */
+  public synchronized long getCharacters() {
+    return characters;
+  }
+
+  /**
+   * @return the state of the screen.
+   */
+  public VirtualTerminal getVirtualTerminal() {
+    return virtual;
+  }
+
+  /**
+   * @param key A keystroke to add to the input, as if it were typed.
+   */
+  public void addInput(KeyStroke key) {
+    virtual.addInput(key);
+  }
+
+  /**
+   * Changes the size of the terminal and notifies the resize listeners.
+   *
+   * @param size The new size of the terminal.
+   */
+  public void setTerminalSize(TerminalSize size) {
+    virtual.setTerminalSize(size);
+    onResized(size);
+  }
+
+  @Override
+  public synchronized void enterPrivateMode() throws IOException {
+    virtual.enterPrivateMode();
+    ansi.enterPrivateMode();
+  }
+
+  @Override
+  public synchronized void exitPrivateMode() throws IOException {
+    virtual.exitPrivateMode();
+    ansi.exitPrivateMode();
+  }
+
+  @Override
+  public synchronized void clearScreen() throws IOException {
+    virtual.clearScreen();
+    ansi.clearScreen();
+  }
+
+  @Override
+  public synchronized void setCursorPosition(int x, int y) throws IOException {
+    cursorMoves++;
+    virtual.setCursorPosition(x, y);
+    ansi.setCursorPosition(x, y);
+  }
+
+  @Override
+  public void setCursorPosition(TerminalPosition position) throws IOException {
+    setCursorPosition(position.getColumn(), position.getRow());
+  }
+
+  @Override
+  public synchronized TerminalPosition getCursorPosition() {
+    return virtual.getCursorPosition();
+  }
+
+  @Override
+  public synchronized void setCursorVisible(boolean visible) throws IOException {
+    virtual.setCursorVisible(visible);
+    ansi.setCursorVisible(visible);
+  }
+
+  @Override
+  public synchronized void putCharacter(char c) throws IOException {
+    characters++;
+    virtual.putCharacter(c);
+    ansi.putCharacter(c);
+  }
+
+  @Override
+  public synchronized void putString(String string) throws IOException {
+    characters += string.length();
+    virtual.putString(string);
+    ansi.putString(string);
+  }
+
+  @Override
+  public synchronized void enableSGR(SGR sgr) throws IOException {
+    virtual.enableSGR(sgr);
+    ansi.enableSGR(sgr);
+  }
+
+  @Override
+  public synchronized void disableSGR(SGR sgr) throws IOException {
+    virtual.disableSGR(sgr);
+    ansi.disableSGR(sgr);
+  }
+
+  @Override
+  public synchronized void resetColorAndSGR() throws IOException {
+    virtual.resetColorAndSGR();
+    ansi.resetColorAndSGR();
+  }
+
+  @Override
+  public synchronized void setForegroundColor(TextColor color) throws IOException {
+    virtual.setForegroundColor(color);
+    ansi.setForegroundColor(color);
+  }
+
+  @Override
+  public synchronized void setBackgroundColor(TextColor color) throws IOException {
+    virtual.setBackgroundColor(color);
+    ansi.setBackgroundColor(color);
+  }
+
+  @Override
+  public TerminalSize getTerminalSize() {
+    return virtual.getTerminalSize();
+  }
+
+  @Override
+  public byte[] enquireTerminal(int timeout, TimeUnit timeoutUnit) {
+    return virtual.enquireTerminal(timeout, timeoutUnit);
+  }
+
+  @Override
+  public synchronized void bell() throws IOException {
+    virtual.bell();
+    ansi.bell();
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    flushes++;
+    virtual.flush();
+    ansi.flush();
+  }
+
+  @Override
+  public void close() {
+    virtual.close();
+  }
+
+  @Override
+  public KeyStroke pollInput() {
+    return virtual.pollInput();
+  }
+
+  @Override
+  public KeyStroke readInput() {
+    return virtual.readInput();
+  }
+}
@@ -0,0 +1,209 @@
+package com.skraba.byexample.lanterna;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.graphics.AbstractTextGraphics;
+import com.googlecode.lanterna.graphics.BasicTextImage;
+import com.googlecode.lanterna.graphics.TextGraphics;
+import com.googlecode.lanterna.terminal.Terminal;
+import java.io.IOException;
+
+/**
+ * A double-buffered rectangle of a {@link Terminal}, so that animations only send the cells that
+ * actually changed since the last frame.
+ *
+ * <p>Everything is drawn into a back buffer using the {@link TextGraphics} from {@link
+ * #newTextGraphics()}. When the frame is complete, {@link #flush()} compares the back buffer to the
+ * front buffer (what is already on the terminal) and writes the changed cells. Neighbouring cells
+ * are written as a single run with one cursor move, and the colours and modifiers are only sent
+ * when they differ from the previous cell.
+ *
+ * <p>Unlike a Lanterna {@link com.googlecode.lanterna.screen.Screen}, this doesn't need a private
+ * terminal and can cover just a few rows of a scrolling terminal. The rectangle is assumed to be
+ * blank when the buffer is created.
+ */
+public class ScreenBuffer {
+
+  /** Unchanged cells between two changes that are rewritten instead of moving the cursor. */
+  private static final int MAX_GAP = 4;
+
+  /** The style of the terminal after it is reset. */
+  private static final TextCharacter RESET = TextCharacter.DEFAULT_CHARACTER;
+
+  private final Terminal term;
+  private final TerminalPosition origin;
+
+  /** The next frame, being drawn. */
+  private BasicTextImage back;
+
+  /** The last frame that was sent to the terminal. */
+  private BasicTextImage front;
+
+  /**
+   * True if the terminal contents are unknown, and every cell must be written on the next flush.
+   */
+  private boolean invalid;
+
+  /** The colours and modifiers currently set on the terminal, or null if unknown. */
+  private TextCharacter style;
+
+  /**
+   * A buffer over the whole terminal.
+   *
+   * @param term The terminal to draw on.
+   * @throws IOException If the size of the terminal can't be read.
+   */
+  public ScreenBuffer(Terminal term) throws IOException {
+    this(term, TerminalPosition.TOP_LEFT_CORNER, term.getTerminalSize());
+  }
+
+  /**
+   * @param term The terminal to draw on.
+   * @param origin The position of the top left corner of the buffer on the terminal.
+   * @param size The size of the buffer.
+   */
+  public ScreenBuffer(Terminal term, TerminalPosition origin, TerminalSize size) {
+    this.term = term;
+    this.origin = origin;
+    this.back = new BasicTextImage(size);
+    this.front = new BasicTextImage(size);
+  }
+
+  /**
+   * @return the size of the buffer.
+   */
+  public synchronized TerminalSize getSize() {
+    return back.getSize();
+  }
+
+  /**
+   * @return a new graphics object that draws into the back buffer, relative to the origin. It stays
+   *     valid when the buffer is resized.
+   */
+  public TextGraphics newTextGraphics() {
+    return new AbstractTextGraphics() {
+      @Override
+      public TextGraphics setCharacter(int column, int row, TextCharacter character) {
+        synchronized (ScreenBuffer.this) {
+          back.setCharacterAt(column, row, character);
+        }
+        return this;
+      }
+
+      @Override
+      public TextCharacter getCharacter(int column, int row) {
+        synchronized (ScreenBuffer.this) {
+          return back.getCharacterAt(column, row);
+        }
+      }
+
+      @Override
+      public TerminalSize getSize() {
+        return ScreenBuffer.this.getSize();
+      }
+    };
+  }
+
+  /**
+   * Changes the size of the buffer, keeping the contents that still fit. Since the terminal may
+   * have moved or cleared its contents while resizing, the next flush rewrites every cell.
+   *
+   * @param size The new size of the buffer.
+   */
+  public synchronized void resize(TerminalSize size) {
+    back = back.resize(size, TextCharacter.DEFAULT_CHARACTER);
+    front = new BasicTextImage(size);
+    invalid = true;
+  }
+
+  /** Forgets what is on the terminal, so that the next flush rewrites every cell. */
+  public synchronized void invalidate() {
+    invalid = true;
+  }
+
+  /**
+   * Writes the cells that changed since the last flush to the terminal and flushes it. The colours
+   * and modifiers of the terminal are reset afterwards.
+   *
+   * @return the number of cells that were written.
+   * @throws IOException If a problem occurs during terminal IO.
+   */
+  public synchronized int flush() throws IOException {
+    TerminalSize size = back.getSize();
+    int written = 0;
+    for (int row = 0; row < size.getRows(); row++) {
+      int column = 0;
+      while (column < size.getColumns()) {
+        if (!isChanged(column, row)) {
+          column++;
+          continue;
+        }
+        // Start a run of cells at the first change, and write until there are no more changes
+        // nearby.
+        term.setCursorPosition(origin.getColumn() + column, origin.getRow() + row);
+        int gap = 0;
+        while (column < size.getColumns() && gap <= MAX_GAP) {
+          if (isChanged(column, row)) {
+            for (int i = column - gap; i <= column; i++) {
+              write(back.getCharacterAt(i, row));
+              written++;
+            }
+            gap = 0;
+          } else if (isSameStyle(back.getCharacterAt(column, row), style)) {
+            // An unchanged cell in the current style is cheaper to rewrite than to skip.
+            gap++;
+          } else {
+            break;
+          }
+          column++;
+        }
+      }
+    }
+    back.copyTo(front);
+    invalid = false;
+    if (style != null && !isSameStyle(style, RESET)) {
+      term.resetColorAndSGR();
+    }
+    style = RESET;
+    term.flush();
+    return written;
+  }
+
+  /**
+   * @return true if the cell in the back buffer needs to be written to the terminal.
+   */
+  private boolean isChanged(int column, int row) {
+    return invalid || !back.getCharacterAt(column, row).equals(front.getCharacterAt(column, row));
+  }
+
+  /** Writes one cell at the cursor, changing the terminal style only if necessary. */
+  private void write(TextCharacter c) throws IOException {
+    if (style == null || !style.getModifiers().equals(c.getModifiers())) {
+      // Modifiers can only be removed by resetting everything.
+      term.resetColorAndSGR();
+      for (SGR sgr : c.getModifiers()) {
+        term.enableSGR(sgr);
+      }
+      style = RESET.withModifiers(c.getModifiers());
+    }
+    if (!c.getForegroundColor().equals(style.getForegroundColor())) {
+      term.setForegroundColor(c.getForegroundColor());
+    }
+    if (!c.getBackgroundColor().equals(style.getBackgroundColor())) {
+      term.setBackgroundColor(c.getBackgroundColor());
+    }
+    style = c;
+    term.putString(c.getCharacterString());
+  }
+
+  /**
+   * @return true if both cells have the same colours and modifiers.
+   */
+  private static boolean isSameStyle(TextCharacter a, TextCharacter b) {
+    return a.getModifiers().equals(b.getModifiers())
+        && a.getForegroundColor().equals(b.getForegroundColor())
+        && a.getBackgroundColor().equals(b.getBackgroundColor());
+  }
+}
@@ -4,9 +4,24 @@ import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.TextCharacter;
 import com.googlecode.lanterna.graphics.TextGraphics;
 
-/** Monitors progress on a task by printing a progress bar. */
+/**
+ * Monitors progress on a task by printing a progress bar.
+ *
+ * <p>The bar is only drawn when its visible state changes, so ticking with a new count that fills
+ * the same number of cells doesn't draw anything. In high resolution, the last cell of the bar is
+ * drawn with a Unicode block element from ▏ to ▉, for eight steps per cell.
+ */
 public class BarProgress implements ProgressMonitor {
 
+  /** The partially filled cells in high resolution, from one to seven eighths. */
+  private static final String EIGHTHS = "▏▎▍▌▋▊▉";
+
+  /** The completely filled cell in high resolution. */
+  private static final char FULL = '█';
+
+  /** The state when nothing has been drawn yet. */
+  private static final long NOT_DRAWN = Long.MIN_VALUE;
+
   private final TextGraphics graphics;
   private final TerminalPosition position;
   private TerminalPosition endPosition;
@@ -15,9 +30,13 @@ public class BarProgress implements ProgressMonitor {
   private final TextCharacter clear;
   private int barSize;
   private final boolean overCount;
+  private final boolean highResolution;
   private int tickCount;
   private int tickTotal;
 
+  /** What was visible the last time the bar was drawn. */
+  private long lastDrawn = NOT_DRAWN;
+
   /**
    * @param position Starting point of the bar.
    * @param barSize The length of the bar to be drawn.
@@ -31,6 +50,37 @@ public class BarProgress implements ProgressMonitor {
       TextCharacter fill2,
       TextCharacter clear,
       boolean overCount) {
+    this(graphics, position, barSize, fill, fill2, clear, overCount, false);
+  }
+
+  /**
+   * @param position Starting point of the bar.
+   * @param barSize The length of the bar to be drawn.
+   * @param fill The filled part of the bar. In high resolution, the character is replaced by block
+   *     elements, so the foreground colour is the colour of the bar.
+   * @param clear The empty part of the bar.
+   * @param highResolution Whether to draw eighths of a cell at the end of the bar. The bar stops at
+   *     100%.
+   */
+  public BarProgress(
+      TextGraphics graphics,
+      TerminalPosition position,
+      int barSize,
+      TextCharacter fill,
+      TextCharacter clear,
+      boolean highResolution) {
+    this(graphics, position, barSize, fill, fill, clear, false, highResolution);
+  }
+
+  private BarProgress(
+      TextGraphics graphics,
+      TerminalPosition position,
+      int barSize,
+      TextCharacter fill,
+      TextCharacter fill2,
+      TextCharacter clear,
+      boolean overCount,
+      boolean highResolution) {
     this.graphics = graphics;
     this.position = position;
     this.endPosition = position.withRelativeColumn(barSize - 1);
@@ -39,6 +89,7 @@ public class BarProgress implements ProgressMonitor {
     this.fill2 = fill2;
     this.clear = clear;
     this.overCount = overCount;
+    this.highResolution = highResolution;
   }
 
   public BarProgress(
@@ -89,18 +140,53 @@ public class BarProgress implements ProgressMonitor {
       tickCount = 1;
       tickTotal = 1;
     }
+    if (highResolution) {
+      tickHighResolution(tickCount, tickTotal);
+      return;
+    }
     // The progress in number of characters.
-    int size = barSize * tickCount / tickTotal;
+    int size = (int) ((long) barSize * tickCount / tickTotal);
     TextCharacter charBar = fill;
     TextCharacter charClear = clear;
-    if (overCount && size > barSize) {
-      charBar = size / barSize % 2 == 0 ? fill : fill2;
-      charClear = size / barSize % 2 == 0 ? fill2 : fill;
+    // Zero before the bar wraps, then alternating between one and two on every pass.
+    int pass = 0;
+    if (overCount && barSize > 0 && size > barSize) {
+      pass = size / barSize % 2 == 0 ? 1 : 2;
+      charBar = pass == 1 ? fill : fill2;
+      charClear = pass == 1 ? fill2 : fill;
       size = size % barSize;
     }
+    // Skip drawing if the bar would look the same.
+    long drawn = 3L * Math.max(0, Math.min(size, barSize)) + pass;
+    if (drawn == lastDrawn) {
+      return;
+    }
+    lastDrawn = drawn;
     drawBar(graphics, position, size, endPosition, charBar, charClear);
   }
 
+  /** Draws the bar in eighths of a cell. */
+  private void tickHighResolution(int tickCount, int tickTotal) {
+    long eighths = 8L * barSize * Math.max(0, Math.min(tickCount, tickTotal)) / tickTotal;
+    if (eighths == lastDrawn) {
+      return;
+    }
+    lastDrawn = eighths;
+    int full = (int) (eighths / 8);
+    int partial = (int) (eighths % 8);
+    TextCharacter block = fill.withCharacter(FULL);
+    if (partial == 0) {
+      drawBar(graphics, position, full, endPosition, block, clear);
+    } else {
+      // The full cells, then the partial cell which has the empty part of the bar behind it.
+      drawBar(graphics, position, full + 1, endPosition, block, clear);
+      graphics.setCharacter(
+          position.withRelativeColumn(full),
+          fill.withCharacter(EIGHTHS.charAt(partial - 1))
+              .withBackgroundColor(clear.getBackgroundColor()));
+    }
+  }
+
   public static void drawBar(
       TextGraphics graphics,
       TerminalPosition start,
@@ -119,9 +205,20 @@ public class BarProgress implements ProgressMonitor {
     }
   }
 
+  /**
+   * Changes the length of the bar and draws it again.
+   *
+   * @param barSize The length of the bar to be drawn.
+   */
   public void setBarSize(int barSize) {
     this.endPosition = position.withRelativeColumn(barSize - 1);
     this.barSize = barSize;
+    redraw();
+  }
+
+  /** Draws the bar again, even if it hasn't changed, for example after the screen was cleared. */
+  public void redraw() {
+    lastDrawn = NOT_DRAWN;
     tick(tickCount, tickTotal);
   }
 }
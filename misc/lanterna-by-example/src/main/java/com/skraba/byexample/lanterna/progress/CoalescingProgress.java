@@ -0,0 +1,160 @@
+package com.skraba.byexample.lanterna.progress;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monitors progress from any number of threads, but only repaints the wrapped monitors at a fixed
+ * frame rate on a single render thread.
+ *
+ * <p>Ticking never blocks or touches the terminal: the count and total are packed into a single
+ * {@link AtomicLong}, so the cost of reporting progress doesn't depend on how often the task ticks.
+ * The render thread only repaints when the values changed since the last frame. When the task is
+ * finished, {@link #close()} stops the render thread and paints the final values.
+ */
+public class CoalescingProgress implements ProgressMonitor, AutoCloseable {
+
+  /** The default number of repaints per second. */
+  public static final int DEFAULT_FPS = 20;
+
+  private final List<ProgressMonitor> monitors;
+
+  /** Called after the monitors are repainted, usually to flush a terminal or screen buffer. */
+  private final Flushable flush;
+
+  /** The count in the high 32 bits and the total in the low 32 bits. */
+  private final AtomicLong state = new AtomicLong();
+
+  /** The state that was last painted, only accessed while rendering. */
+  private long painted = -1;
+
+  /** The first failure while repainting, thrown when closing. */
+  private volatile Exception failure;
+
+  private final ScheduledExecutorService renderer;
+
+  /**
+   * @param flush Called after the monitors are repainted.
+   * @param monitors The monitors to repaint.
+   */
+  public CoalescingProgress(Flushable flush, ProgressMonitor... monitors) {
+    this(DEFAULT_FPS, flush, monitors);
+  }
+
+  /**
+   * @param fps The maximum number of repaints per second.
+   * @param flush Called after the monitors are repainted.
+   * @param monitors The monitors to repaint.
+   * @throws IllegalArgumentException if the frame rate isn't positive.
+   */
+  public CoalescingProgress(int fps, Flushable flush, ProgressMonitor... monitors) {
+    if (fps <= 0) {
+      throw new IllegalArgumentException("The frame rate must be positive: " + fps);
+    }
+    this.monitors = Arrays.asList(monitors);
+    this.flush = flush;
+    this.renderer =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "progress-render");
+              t.setDaemon(true);
+              return t;
+            });
+    long period = TimeUnit.SECONDS.toNanos(1) / fps;
+    renderer.scheduleAtFixedRate(this::render, period, period, TimeUnit.NANOSECONDS);
+  }
+
+  /** Sets both the count and the total, which will be painted on the next frame. */
+  @Override
+  public void tick(int tickCount, int tickTotal) {
+    state.set(pack(tickCount, tickTotal));
+  }
+
+  /**
+   * Adds to the count without changing the total.
+   *
+   * @param delta The number of ticks to add.
+   */
+  public void add(int delta) {
+    state.getAndAdd((long) delta << 32);
+  }
+
+  /**
+   * @param tickTotal The new total, without changing the count.
+   */
+  public void setTotal(int tickTotal) {
+    state.getAndUpdate(s -> pack(getCount(s), tickTotal));
+  }
+
+  /**
+   * @return the current count.
+   */
+  public int getCount() {
+    return getCount(state.get());
+  }
+
+  /**
+   * @return the current total.
+   */
+  public int getTotal() {
+    return getTotal(state.get());
+  }
+
+  private static long pack(int tickCount, int tickTotal) {
+    return ((long) tickCount << 32) | (tickTotal & 0xFFFFFFFFL);
+  }
+
+  private static int getCount(long state) {
+    return (int) (state >> 32);
+  }
+
+  private static int getTotal(long state) {
+    return (int) state;
+  }
+
+  /** Repaints the monitors if the state has changed since the last frame. */
+  private synchronized void render() {
+    long current = state.get();
+    if (current == painted || failure != null) {
+      return;
+    }
+    try {
+      for (ProgressMonitor monitor : monitors) {
+        monitor.tick(getCount(current), getTotal(current));
+      }
+      flush.flush();
+      painted = current;
+    } catch (IOException | RuntimeException e) {
+      // Any exception thrown from a scheduled task would silently cancel all of the next frames.
+      failure = e;
+    }
+  }
+
+  /**
+   * Stops the render thread and paints the final values.
+   *
+   * @throws IOException If any repaint failed while writing to the terminal.
+   * @throws RuntimeException If any repaint failed for another reason.
+   */
+  @Override
+  public void close() throws IOException {
+    renderer.shutdown();
+    try {
+      renderer.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    render();
+    if (failure instanceof IOException) {
+      throw (IOException) failure;
+    } else if (failure != null) {
+      throw (RuntimeException) failure;
+    }
+  }
+}
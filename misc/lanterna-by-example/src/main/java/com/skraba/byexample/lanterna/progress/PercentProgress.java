@@ -8,28 +8,45 @@ import java.io.IOException;
 /** Monitors progress on a task by printing the completed count and percentage. */
 public class PercentProgress implements ProgressMonitor {
 
+  /** If present, flushed after every tick. */
   private final Terminal term;
+
   private final TextGraphics graphics;
   private final TerminalPosition position;
-  private TerminalPosition lastPosition;
+
+  /** The length of the last text, to erase anything left over when the text gets shorter. */
+  private int lastLength;
 
   public PercentProgress(Terminal term, TerminalPosition position) throws IOException {
+    this(term, term.newTextGraphics(), position);
+  }
+
+  /**
+   * @param graphics Where to draw the progress, usually from a {@link
+   *     com.skraba.byexample.lanterna.ScreenBuffer} that is flushed by the caller.
+   * @param position Starting point of the text.
+   */
+  public PercentProgress(TextGraphics graphics, TerminalPosition position) {
+    this(null, graphics, position);
+  }
+
+  private PercentProgress(Terminal term, TextGraphics graphics, TerminalPosition position) {
     this.term = term;
-    this.graphics = term.newTextGraphics();
+    this.graphics = graphics;
     this.position = position;
-    this.lastPosition = position;
   }
 
   @Override
   public void tick(int tickCount, int tickTotal) throws IOException {
     double percent = tickTotal == 0 ? 100 : 100d * tickCount / tickTotal;
-    graphics.putString(
-        position,
-        String.valueOf(tickCount) + " / " + tickTotal + " (" + Math.round(percent) + "%)");
-    while (term.getCursorPosition().getColumn() < lastPosition.getColumn()) {
-      term.putCharacter(' ');
+    String text = tickCount + " / " + tickTotal + " (" + Math.round(percent) + "%)";
+    graphics.putString(position, text);
+    for (int i = text.length(); i < lastLength; i++) {
+      graphics.setCharacter(position.withRelativeColumn(i), ' ');
+    }
+    lastLength = text.length();
+    if (term != null) {
+      term.flush();
     }
-    term.flush();
-    lastPosition = term.getCursorPosition();
   }
 }
@@ -0,0 +1,307 @@
+package com.skraba.byexample.lanterna.progress;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.graphics.TextGraphics;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shows the progress of many concurrent tasks, one row per task.
+ *
+ * <p>Every row has the name of the task, a high resolution {@link BarProgress}, the rate of items
+ * and bytes per second, and the estimated time until the task is finished. The rates are smoothed
+ * exponentially over time, so that they don't jump around between repaints.
+ *
+ * <p>Tasks can be added and removed from any thread, and the workers update their {@link Task}
+ * without locking. Nothing is drawn until {@link #render()} is called, usually at a fixed frame
+ * rate by the thread that owns the terminal.
+ */
+public class ProgressDashboard {
+
+  /** The time over which the rates are smoothed. */
+  public static final long SMOOTHING_NANOS = TimeUnit.SECONDS.toNanos(3);
+
+  /** The maximum width of the task names. */
+  private static final int MAX_NAME_WIDTH = 20;
+
+  /** The number of steps in the progress bars, much more than the number of eighths of a cell. */
+  private static final int RESOLUTION = 1_000_000;
+
+  /** The width of the rates and ETA at the end of every row. */
+  private static final int STATS_WIDTH = 34;
+
+  private final TextGraphics graphics;
+  private final TerminalPosition position;
+  private final int width;
+
+  private final List<Task> tasks = new CopyOnWriteArrayList<>();
+
+  /** The number of rows drawn during the last repaint. */
+  private int lastRows;
+
+  /**
+   * @param graphics Where to draw the dashboard, usually from a {@link
+   *     com.skraba.byexample.lanterna.ScreenBuffer}.
+   * @param position The top left corner of the dashboard.
+   * @param width The number of columns in every row.
+   */
+  public ProgressDashboard(TextGraphics graphics, TerminalPosition position, int width) {
+    this.graphics = graphics;
+    this.position = position;
+    this.width = width;
+  }
+
+  /**
+   * @param name The name of the task.
+   * @param total The number of items expected, or zero if unknown.
+   * @return a new task, shown at the bottom of the dashboard.
+   */
+  public Task addTask(String name, long total) {
+    Task task = new Task(name, total);
+    tasks.add(task);
+    return task;
+  }
+
+  /**
+   * @param task The task to remove from the dashboard. The rows below it move up on the next
+   *     repaint.
+   */
+  public void removeTask(Task task) {
+    tasks.remove(task);
+  }
+
+  /**
+   * @return the tasks currently on the dashboard.
+   */
+  public List<Task> getTasks() {
+    return List.copyOf(tasks);
+  }
+
+  /** Draws all of the tasks, updating their rates with the current time. */
+  public void render() {
+    render(System.nanoTime());
+  }
+
+  /**
+   * Draws all of the tasks.
+   *
+   * @param now The current time in nanoseconds, as from {@link System#nanoTime()}.
+   */
+  public synchronized void render(long now) {
+    int nameWidth = 0;
+    for (Task task : tasks) {
+      nameWidth = Math.max(nameWidth, Math.min(MAX_NAME_WIDTH, task.name.length()));
+    }
+    int barSize = Math.max(1, width - nameWidth - STATS_WIDTH - 3);
+
+    int row = 0;
+    for (Task task : tasks) {
+      TerminalPosition rowPosition = position.withRelativeRow(row);
+      task.update(now);
+
+      String name = task.name.length() > nameWidth ? task.name.substring(0, nameWidth) : task.name;
+      // Padded by hand, since a format width can't be zero when all of the names are empty.
+      graphics.putString(
+          rowPosition, name + " ".repeat(nameWidth - name.length()) + " [", SGR.BOLD);
+      graphics.putString(rowPosition.withRelativeColumn(nameWidth + barSize + 2), "]", SGR.BOLD);
+
+      // The bar needs to be replaced when the row moves or the names get longer or shorter.
+      TerminalPosition barPosition = rowPosition.withRelativeColumn(nameWidth + 2);
+      if (task.bar == null || !barPosition.equals(task.barPosition) || barSize != task.barSize) {
+        task.bar =
+            new BarProgress(
+                graphics,
+                barPosition,
+                barSize,
+                TextCharacter.DEFAULT_CHARACTER,
+                TextCharacter.DEFAULT_CHARACTER,
+                true);
+        task.barPosition = barPosition;
+        task.barSize = barSize;
+      }
+      long items = task.getItems();
+      long total = task.getTotal();
+      // The bar only counts in ints, so scale down to a fixed resolution.
+      task.bar.tick(
+          total <= 0 ? 0 : (int) (RESOLUTION * ((double) Math.min(items, total) / total)),
+          total <= 0 ? 1 : RESOLUTION);
+
+      String stats =
+          String.format(
+              Locale.ROOT,
+              " %9s %11s %11s",
+              formatRate(task.getItemRate(), "/s"),
+              formatRate(task.getByteRate(), "B/s"),
+              formatEta(task.getEta()));
+      // Very large rates don't fit in their columns, but must never spill past the row.
+      graphics.putString(
+          rowPosition.withRelativeColumn(nameWidth + barSize + 3),
+          stats.length() > STATS_WIDTH ? stats.substring(0, STATS_WIDTH) : stats);
+      row++;
+    }
+
+    // Erase any rows left over from removed tasks.
+    for (; row < lastRows; row++) {
+      graphics.drawLine(
+          position.withRelativeRow(row),
+          position.withRelativeRow(row).withRelativeColumn(width - 1),
+          ' ');
+    }
+    lastRows = tasks.size();
+  }
+
+  /**
+   * @param rate A rate per second.
+   * @param units The units to show after the SI prefix.
+   * @return the rate as a short string, like {@code 1.5kB/s}.
+   */
+  static String formatRate(double rate, String units) {
+    String[] prefixes = {"", "k", "M", "G", "T"};
+    int prefix = 0;
+    while (rate >= 999.95 && prefix < prefixes.length - 1) {
+      rate /= 1000;
+      prefix++;
+    }
+    return String.format(Locale.ROOT, "%.1f%s%s", rate, prefixes[prefix], units);
+  }
+
+  /**
+   * @param nanos A duration in nanoseconds, or a negative number if unknown.
+   * @return the duration as the estimated time remaining, like {@code ETA 1:05:09}, or {@code ETA
+   *     >99h} if it's too long to be useful.
+   */
+  static String formatEta(long nanos) {
+    if (nanos < 0) {
+      return "ETA --:--";
+    }
+    long seconds = TimeUnit.NANOSECONDS.toSeconds(nanos + TimeUnit.MILLISECONDS.toNanos(500));
+    if (seconds >= TimeUnit.HOURS.toSeconds(100)) {
+      return "ETA >99h";
+    }
+    if (seconds >= TimeUnit.HOURS.toSeconds(1)) {
+      return String.format(
+          Locale.ROOT, "ETA %d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+    return String.format(Locale.ROOT, "ETA %d:%02d", seconds / 60, seconds % 60);
+  }
+
+  /** One row of the dashboard, updated by the worker doing the task. */
+  public static class Task {
+
+    private final String name;
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong total;
+
+    /** The rest of the fields are only used while rendering. */
+    private BarProgress bar;
+
+    private TerminalPosition barPosition;
+    private int barSize;
+
+    /** False until the first update, when there is nothing to compare to. */
+    private boolean started;
+
+    /** When the rates were last updated. */
+    private long lastTime;
+
+    private long lastItems;
+    private long lastBytes;
+
+    /** False until the first rate is measured, which is used as is. */
+    private boolean primed;
+
+    /** The smoothed number of items per second. */
+    private double itemRate;
+
+    /** The smoothed number of bytes per second. */
+    private double byteRate;
+
+    private Task(String name, long total) {
+      this.name = name;
+      this.total = new AtomicLong(total);
+    }
+
+    /**
+     * Records some work done.
+     *
+     * @param items The number of items that were finished.
+     * @param bytes The number of bytes that were processed.
+     */
+    public void add(long items, long bytes) {
+      this.items.addAndGet(items);
+      this.bytes.addAndGet(bytes);
+    }
+
+    /**
+     * @param total The number of items expected, or zero if unknown.
+     */
+    public void setTotal(long total) {
+      this.total.set(total);
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getItems() {
+      return items.get();
+    }
+
+    public long getBytes() {
+      return bytes.get();
+    }
+
+    public long getTotal() {
+      return total.get();
+    }
+
+    /**
+     * @return the smoothed number of items per second, as of the last repaint.
+     */
+    public synchronized double getItemRate() {
+      return itemRate;
+    }
+
+    /**
+     * @return the smoothed number of bytes per second, as of the last repaint.
+     */
+    public synchronized double getByteRate() {
+      return byteRate;
+    }
+
+    /**
+     * @return the estimated nanoseconds until all the items are finished, or -1 if unknown.
+     */
+    public synchronized long getEta() {
+      long remaining = getTotal() - getItems();
+      if (getTotal() <= 0 || remaining > 0 && itemRate <= 0) {
+        return -1;
+      }
+      return remaining <= 0 ? 0 : (long) (remaining / itemRate * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /** Updates the smoothed rates with the work done since the last update. */
+    private synchronized void update(long now) {
+      long currentItems = getItems();
+      long currentBytes = getBytes();
+      if (started && now > lastTime) {
+        double seconds = (now - lastTime) / (double) TimeUnit.SECONDS.toNanos(1);
+        // The weight of the new rate depends on the elapsed time, not the frame rate.
+        double alpha = primed ? 1 - Math.exp(-(now - lastTime) / (double) SMOOTHING_NANOS) : 1;
+        itemRate += alpha * ((currentItems - lastItems) / seconds - itemRate);
+        byteRate += alpha * ((currentBytes - lastBytes) / seconds - byteRate);
+        primed = true;
+      }
+      started = true;
+      lastTime = now;
+      lastItems = currentItems;
+      lastBytes = currentBytes;
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.skraba.byexample.lanterna;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.googlecode.lanterna.terminal.virtual.VirtualTerminal;
+import org.junit.jupiter.api.Test;
+
+/** Checks that the demos in {@link LanternaBenchmark} replay without a real terminal. */
+public class LanternaBenchmarkTest {
+
+  /**
+   * @return the text on the row of the screen.
+   */
+  private static String row(VirtualTerminal screen, int row) {
+    StringBuilder sb = new StringBuilder();
+    for (int column = 0; column < screen.getTerminalSize().getColumns(); column++) {
+      sb.append(screen.getCharacter(column, row).getCharacterString());
+    }
+    return sb.toString().trim();
+  }
+
+  @Test
+  public void testHacker() throws Exception {
+    RecordingTerminal term = LanternaBenchmark.replay("hacker");
+    VirtualTerminal screen = term.getVirtualTerminal();
+    int welcome = term.getCursorPosition().getRow();
+    assertThat(row(screen, welcome), is("Welcome!"));
+    assertThat(row(screen, welcome - 2), startsWith("Secure token: "));
+    assertThat(row(screen, welcome - 3), is("HACKING SUCCESSFUL"));
+    assertThat(term.getFlushes(), greaterThan(100L));
+  }
+
+  @Test
+  public void testListener() throws Exception {
+    RecordingTerminal term = LanternaBenchmark.replay("listener");
+    VirtualTerminal screen = term.getVirtualTerminal();
+    assertThat(row(screen, 0), is("Progress bar examples"));
+    // The last keystroke before escape
+    assertThat(row(screen, 6), is("Processing file: 50 / 57 (88%)"));
+    assertThat(term.getFlushes(), is(71L));
+  }
+
+  @Test
+  public void testDashboard() throws Exception {
+    RecordingTerminal term = LanternaBenchmark.replay("dashboard");
+    VirtualTerminal screen = term.getVirtualTerminal();
+    assertThat(row(screen, 0), is("Task dashboard"));
+    assertThat(row(screen, 2), is("All tasks are finished."));
+    assertThat(term.getFlushes(), greaterThan(100L));
+  }
+
+  @Test
+  public void testUnknown() {
+    IllegalArgumentException ex =
+        assertThrows(IllegalArgumentException.class, () -> LanternaBenchmark.replay("x"));
+    assertThat(ex.getMessage(), is("Unknown demo: x"));
+  }
+}
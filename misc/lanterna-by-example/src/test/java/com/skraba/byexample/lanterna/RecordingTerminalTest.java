@@ -0,0 +1,62 @@
+package com.skraba.byexample.lanterna;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link RecordingTerminal}. */
+public class RecordingTerminalTest {
+
+  @Test
+  public void testCounts() throws IOException {
+    RecordingTerminal term = new RecordingTerminal(new TerminalSize(20, 5));
+    assertThat(term.getTerminalSize(), is(new TerminalSize(20, 5)));
+
+    term.putString("abc");
+    assertThat(term.getBytes(), is(3L));
+    assertThat(term.getCharacters(), is(3L));
+    assertThat(term.getCursorPosition(), is(new TerminalPosition(3, 0)));
+
+    // ESC [ 3 ; 2 H
+    term.setCursorPosition(1, 2);
+    assertThat(term.getBytes(), is(3L + 6));
+    assertThat(term.getCursorMoves(), is(1L));
+    assertThat(term.getCursorPosition(), is(new TerminalPosition(1, 2)));
+
+    // ESC [ 1 m and ESC [ 3 1 m
+    term.enableSGR(SGR.BOLD);
+    term.setForegroundColor(TextColor.ANSI.RED);
+    term.putCharacter('x');
+    assertThat(term.getBytes(), is(3L + 6 + 4 + 5 + 1));
+    assertThat(term.getCharacters(), is(4L));
+    assertThat(term.getVirtualTerminal().getCharacter(1, 2).getCharacterString(), is("x"));
+    assertThat(
+        term.getVirtualTerminal().getCharacter(1, 2).getForegroundColor(), is(TextColor.ANSI.RED));
+
+    assertThat(term.getFlushes(), is(0L));
+    term.flush();
+    assertThat(term.getFlushes(), is(1L));
+  }
+
+  @Test
+  public void testInputAndResize() throws IOException {
+    RecordingTerminal term = new RecordingTerminal(new TerminalSize(20, 5));
+    term.addInput(new KeyStroke(KeyType.Escape));
+    assertThat(term.readInput().getKeyType(), is(KeyType.Escape));
+    assertThat(term.pollInput(), nullValue());
+
+    TerminalSize[] resized = new TerminalSize[1];
+    term.addResizeListener((t, size) -> resized[0] = size);
+    term.setTerminalSize(new TerminalSize(30, 10));
+    assertThat(resized[0], is(new TerminalSize(30, 10)));
+    assertThat(term.getTerminalSize(), is(new TerminalSize(30, 10)));
+  }
+}
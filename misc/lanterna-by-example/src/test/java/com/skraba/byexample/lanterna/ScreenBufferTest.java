@@ -0,0 +1,142 @@
+package com.skraba.byexample.lanterna;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.graphics.TextGraphics;
+import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.virtual.DefaultVirtualTerminal;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link ScreenBuffer}. */
+public class ScreenBufferTest {
+
+  /** The terminal that shows the result. */
+  private DefaultVirtualTerminal virtual;
+
+  /** The names of the methods called on the terminal. */
+  private final List<String> calls = new ArrayList<>();
+
+  private ScreenBuffer buffer;
+  private TextGraphics graphics;
+
+  @BeforeEach
+  void setup() {
+    virtual = new DefaultVirtualTerminal(new TerminalSize(20, 5));
+    Terminal term =
+        (Terminal)
+            Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {Terminal.class},
+                (proxy, method, args) -> {
+                  calls.add(method.getName());
+                  try {
+                    return method.invoke(virtual, args);
+                  } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                  }
+                });
+    buffer = new ScreenBuffer(term, new TerminalPosition(2, 1), new TerminalSize(10, 2));
+    graphics = buffer.newTextGraphics();
+  }
+
+  /**
+   * @return the text on the terminal row.
+   */
+  private String row(int row) {
+    StringBuilder sb = new StringBuilder();
+    for (int column = 0; column < virtual.getTerminalSize().getColumns(); column++) {
+      sb.append(virtual.getCharacter(column, row).getCharacterString());
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @return how many times the method was called on the terminal.
+   */
+  private int count(String method) {
+    return Collections.frequency(calls, method);
+  }
+
+  @Test
+  public void testFlushOnlyChanges() throws IOException {
+    graphics.putString(0, 0, "Hello");
+    graphics.putString(3, 1, "World");
+    assertThat(buffer.flush(), is(10));
+    assertThat(row(1), is("  Hello             "));
+    assertThat(row(2), is("     World          "));
+    // One cursor move for each run of changes
+    assertThat(count("setCursorPosition"), is(2));
+    assertThat(count("putString"), is(10));
+    assertThat(count("flush"), is(1));
+
+    // Nothing has changed, so nothing is written
+    calls.clear();
+    assertThat(buffer.flush(), is(0));
+    assertThat(calls, contains("flush"));
+
+    // Only the changed cell is written
+    calls.clear();
+    graphics.putString(0, 0, "Jello");
+    assertThat(buffer.flush(), is(1));
+    assertThat(row(1), is("  Jello             "));
+    assertThat(count("setCursorPosition"), is(1));
+    assertThat(count("putString"), is(1));
+  }
+
+  @Test
+  public void testMergeNearbyChanges() throws IOException {
+    graphics.putString(0, 0, "abcdefghij");
+    buffer.flush();
+
+    // Rewriting a few unchanged cells is cheaper than moving the cursor, but not too many.
+    calls.clear();
+    graphics.putString(0, 0, "AbcDefghiJ");
+    assertThat(buffer.flush(), is(5));
+    assertThat(row(1), is("  AbcDefghiJ        "));
+    assertThat(count("setCursorPosition"), is(2));
+    assertThat(count("putString"), is(5));
+  }
+
+  @Test
+  public void testStyleOnlyWhenChanged() throws IOException {
+    graphics.setForegroundColor(TextColor.ANSI.RED);
+    graphics.putString(0, 0, "red");
+    graphics.setForegroundColor(TextColor.ANSI.BLUE);
+    graphics.putString(3, 0, "blue", SGR.BOLD);
+    buffer.flush();
+    assertThat(virtual.getCharacter(2, 1).getForegroundColor(), is(TextColor.ANSI.RED));
+    assertThat(virtual.getCharacter(5, 1).getForegroundColor(), is(TextColor.ANSI.BLUE));
+    assertThat(virtual.getCharacter(5, 1).getModifiers(), contains(SGR.BOLD));
+    assertThat(count("setForegroundColor"), is(2));
+    assertThat(count("enableSGR"), is(1));
+    // Once before the first cell, once before the bold cells, and once at the end
+    assertThat(count("resetColorAndSGR"), is(3));
+  }
+
+  @Test
+  public void testInvalidateAndResize() throws IOException {
+    graphics.putString(0, 0, "Hello");
+    buffer.flush();
+
+    calls.clear();
+    buffer.invalidate();
+    assertThat(buffer.flush(), is(20));
+    assertThat(count("setCursorPosition"), is(2));
+
+    buffer.resize(new TerminalSize(3, 1));
+    assertThat(graphics.getSize(), is(new TerminalSize(3, 1)));
+    assertThat(buffer.flush(), is(3));
+  }
+}
@@ -0,0 +1,133 @@
+package com.skraba.byexample.lanterna.progress;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.graphics.BasicTextImage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link BarProgress}. */
+public class BarProgressTest {
+
+  private BasicTextImage image;
+
+  @BeforeEach
+  public void setup() {
+    image = new BasicTextImage(new TerminalSize(12, 1));
+  }
+
+  /**
+   * @return the text in the image.
+   */
+  private String row() {
+    StringBuilder sb = new StringBuilder();
+    for (int column = 0; column < image.getSize().getColumns(); column++) {
+      sb.append(image.getCharacterAt(column, 0).getCharacterString());
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testBar() {
+    BarProgress bar = new BarProgress(image.newTextGraphics(), new TerminalPosition(1, 0), 10);
+    bar.tick(0, 100);
+    assertThat(row(), is("            "));
+    bar.tick(25, 100);
+    assertThat(row(), is(" ==         "));
+    bar.tick(100, 100);
+    assertThat(row(), is(" ========== "));
+    bar.tick(200, 100);
+    assertThat(row(), is(" ========== "));
+    bar.tick(5, 0);
+    assertThat(row(), is(" ========== "));
+  }
+
+  @Test
+  public void testBarOverCount() {
+    BarProgress bar =
+        new BarProgress(image.newTextGraphics(), new TerminalPosition(1, 0), 10, true);
+    bar.tick(50, 100);
+    assertThat(row(), is(" =====      "));
+    bar.tick(130, 100);
+    assertThat(row(), is(" ---======= "));
+
+    // Empty on the first pass and the second pass look different.
+    bar.tick(0, 1);
+    assertThat(row(), is("            "));
+    bar.tick(2, 1);
+    assertThat(row(), is(" ---------- "));
+
+    // A bar without any cells can still tick.
+    bar.setBarSize(0);
+    bar.tick(2, 1);
+  }
+
+  @Test
+  public void testHighResolution() {
+    BarProgress bar =
+        new BarProgress(
+            image.newTextGraphics(),
+            new TerminalPosition(1, 0),
+            10,
+            TextCharacter.fromCharacter(' ', TextColor.ANSI.CYAN, TextColor.ANSI.DEFAULT)[0],
+            TextCharacter.DEFAULT_CHARACTER,
+            true);
+    bar.tick(0, 80);
+    assertThat(row(), is("            "));
+    bar.tick(1, 80);
+    assertThat(row(), is(" ▏          "));
+    bar.tick(7, 80);
+    assertThat(row(), is(" ▉          "));
+    bar.tick(8, 80);
+    assertThat(row(), is(" █          "));
+    bar.tick(43, 80);
+    assertThat(row(), is(" █████▍     "));
+    assertThat(image.getCharacterAt(6, 0).getForegroundColor(), is(TextColor.ANSI.CYAN));
+    bar.tick(80, 80);
+    assertThat(row(), is(" ██████████ "));
+    bar.tick(100, 80);
+    assertThat(row(), is(" ██████████ "));
+    bar.tick(10, 800);
+    assertThat(row(), is(" ▏          "));
+  }
+
+  @Test
+  public void testOnlyRedrawChanges() {
+    BarProgress bar = new BarProgress(image.newTextGraphics(), new TerminalPosition(1, 0), 10);
+    bar.tick(25, 100);
+    assertThat(row(), is(" ==         "));
+
+    // Mark the bar to detect when it is drawn again.
+    image.setCharacterAt(2, 0, TextCharacter.fromCharacter('x')[0]);
+    bar.tick(29, 100);
+    assertThat(row(), is(" =x         "));
+    bar.tick(30, 100);
+    assertThat(row(), is(" ===        "));
+
+    image.setCharacterAt(2, 0, TextCharacter.fromCharacter('x')[0]);
+    bar.redraw();
+    assertThat(row(), is(" ===        "));
+
+    // In high resolution, only a change in eighths causes a redraw.
+    bar =
+        new BarProgress(
+            image.newTextGraphics(),
+            new TerminalPosition(1, 0),
+            10,
+            TextCharacter.DEFAULT_CHARACTER,
+            TextCharacter.DEFAULT_CHARACTER,
+            true);
+    bar.tick(100, 800);
+    assertThat(row(), is(" █▎         "));
+    image.setCharacterAt(1, 0, TextCharacter.fromCharacter('x')[0]);
+    bar.tick(109, 800);
+    assertThat(row(), is(" x▎         "));
+    bar.tick(120, 800);
+    assertThat(row(), is(" █▌         "));
+  }
+}
@@ -0,0 +1,112 @@
+package com.skraba.byexample.lanterna.progress;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link CoalescingProgress}. */
+public class CoalescingProgressTest {
+
+  /** The values painted by a monitor. */
+  private final List<int[]> painted = new ArrayList<>();
+
+  private final AtomicInteger flushes = new AtomicInteger();
+
+  @Test
+  public void testCoalesceTicksFromManyThreads() throws Exception {
+    int threads = 4;
+    int ticks = 250_000;
+    try (CoalescingProgress progress =
+        new CoalescingProgress(
+            100,
+            flushes::incrementAndGet,
+            (count, total) -> painted.add(new int[] {count, total}))) {
+      progress.setTotal(threads * ticks);
+      List<Thread> workers = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        Thread t =
+            new Thread(
+                () -> {
+                  for (int j = 0; j < ticks; j++) {
+                    progress.add(1);
+                  }
+                });
+        t.start();
+        workers.add(t);
+      }
+      for (Thread t : workers) {
+        t.join();
+      }
+      assertThat(progress.getCount(), is(threads * ticks));
+      assertThat(progress.getTotal(), is(threads * ticks));
+    }
+
+    // The final values are always painted, but far fewer times than the ticks.
+    assertThat(painted.get(painted.size() - 1), is(new int[] {threads * ticks, threads * ticks}));
+    assertThat(painted.size(), lessThan(1000));
+    assertThat(flushes.get(), is(painted.size()));
+  }
+
+  @Test
+  public void testOnlyRepaintChanges() throws Exception {
+    CoalescingProgress progress =
+        new CoalescingProgress(
+            1000,
+            flushes::incrementAndGet,
+            (count, total) -> painted.add(new int[] {count, total}));
+    progress.tick(5, 10);
+    Thread.sleep(50);
+    progress.close();
+    assertThat(painted, hasSize(1));
+    assertThat(painted.get(0), is(new int[] {5, 10}));
+  }
+
+  @Test
+  public void testFailure() {
+    CoalescingProgress progress =
+        new CoalescingProgress(
+            1000,
+            flushes::incrementAndGet,
+            (count, total) -> {
+              throw new IOException("Broken terminal");
+            });
+    progress.tick(1, 10);
+    IOException ex = assertThrows(IOException.class, progress::close);
+    assertThat(ex.getMessage(), is("Broken terminal"));
+  }
+
+  @Test
+  public void testRuntimeFailure() throws Exception {
+    CoalescingProgress progress =
+        new CoalescingProgress(
+            1000,
+            flushes::incrementAndGet,
+            (count, total) -> {
+              painted.add(new int[] {count, total});
+              throw new IllegalStateException("Broken graphics");
+            });
+    progress.tick(1, 10);
+    Thread.sleep(50);
+    progress.tick(2, 10);
+    IllegalStateException ex = assertThrows(IllegalStateException.class, progress::close);
+    assertThat(ex.getMessage(), is("Broken graphics"));
+    // Nothing is painted after the failure.
+    assertThat(painted, hasSize(1));
+    assertThat(flushes.get(), is(0));
+  }
+
+  @Test
+  public void testInvalidFrameRate() {
+    IllegalArgumentException ex =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> new CoalescingProgress(0, flushes::incrementAndGet));
+    assertThat(ex.getMessage(), is("The frame rate must be positive: 0"));
+  }
+}
@@ -0,0 +1,124 @@
+package com.skraba.byexample.lanterna.progress;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.graphics.BasicTextImage;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link ProgressDashboard}. */
+public class ProgressDashboardTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private BasicTextImage image;
+  private ProgressDashboard dashboard;
+
+  @BeforeEach
+  public void setup() {
+    image = new BasicTextImage(new TerminalSize(60, 4));
+    dashboard = new ProgressDashboard(image.newTextGraphics(), new TerminalPosition(0, 1), 60);
+  }
+
+  /**
+   * @return the text on the row of the image.
+   */
+  private String row(int row) {
+    StringBuilder sb = new StringBuilder();
+    for (int column = 0; column < image.getSize().getColumns(); column++) {
+      sb.append(image.getCharacterAt(column, row).getCharacterString());
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testFormatRate() {
+    assertThat(ProgressDashboard.formatRate(0, "/s"), is("0.0/s"));
+    assertThat(ProgressDashboard.formatRate(999.9, "/s"), is("999.9/s"));
+    assertThat(ProgressDashboard.formatRate(999.99, "/s"), is("1.0k/s"));
+    assertThat(ProgressDashboard.formatRate(1_500_000, "B/s"), is("1.5MB/s"));
+    assertThat(ProgressDashboard.formatRate(3e15, "B/s"), is("3000.0TB/s"));
+  }
+
+  @Test
+  public void testFormatEta() {
+    assertThat(ProgressDashboard.formatEta(-1), is("ETA --:--"));
+    assertThat(ProgressDashboard.formatEta(0), is("ETA 0:00"));
+    assertThat(ProgressDashboard.formatEta(65 * SECOND), is("ETA 1:05"));
+    assertThat(ProgressDashboard.formatEta(3909 * SECOND), is("ETA 1:05:09"));
+    assertThat(ProgressDashboard.formatEta(359_999 * SECOND), is("ETA 99:59:59"));
+    assertThat(ProgressDashboard.formatEta(360_000 * SECOND), is("ETA >99h"));
+  }
+
+  @Test
+  public void testRender() {
+    ProgressDashboard.Task copy = dashboard.addTask("copy", 100);
+    ProgressDashboard.Task sieve = dashboard.addTask("sieve", 0);
+    dashboard.render(SECOND);
+    assertThat(row(0).trim(), is(""));
+    assertThat(row(1), is("copy  [                  ]     0.0/s      0.0B/s   ETA --:--"));
+    assertThat(row(2), is("sieve [                  ]     0.0/s      0.0B/s   ETA --:--"));
+
+    // The first rate is used as is.
+    copy.add(50, 5000);
+    sieve.add(1000, 0);
+    dashboard.render(2 * SECOND);
+    assertThat(copy.getItemRate(), is(50.0));
+    assertThat(copy.getByteRate(), is(5000.0));
+    assertThat(copy.getEta(), is(SECOND));
+    assertThat(row(1), is("copy  [█████████         ]    50.0/s     5.0kB/s    ETA 0:01"));
+    assertThat(row(2), is("sieve [                  ]    1.0k/s      0.0B/s   ETA --:--"));
+
+    // Afterwards, the rate is smoothed.
+    copy.add(10, 1000);
+    dashboard.render(3 * SECOND);
+    assertThat(copy.getItemRate(), allOf(greaterThan(10.0), lessThan(50.0)));
+
+    // Removing a task moves the rows up and erases the last one.
+    dashboard.removeTask(copy);
+    dashboard.render(4 * SECOND);
+    assertThat(dashboard.getTasks(), contains(sieve));
+    assertThat(row(1), startsWith("sieve ["));
+    assertThat(row(2).trim(), is(""));
+
+    // Finished tasks have no time remaining.
+    sieve.setTotal(1000);
+    dashboard.render(5 * SECOND);
+    assertThat(sieve.getEta(), is(0L));
+    assertThat(row(1), startsWith("sieve [██████████████████]"));
+  }
+
+  @Test
+  public void testStatsNeverSpill() {
+    // The image is wider than the dashboard, to see anything drawn past the end of the rows.
+    image = new BasicTextImage(new TerminalSize(80, 1));
+    dashboard =
+        new ProgressDashboard(image.newTextGraphics(), TerminalPosition.TOP_LEFT_CORNER, 60);
+    ProgressDashboard.Task task = dashboard.addTask("slow", Long.MAX_VALUE);
+    dashboard.render(0);
+    task.add(1, 1_000_000_000_000_000_000L);
+    dashboard.render(SECOND);
+    assertThat(row(0).substring(60).isBlank(), is(true));
+    assertThat(row(0), containsString("1000000.0TB/s"));
+  }
+
+  @Test
+  public void testEmptyName() {
+    dashboard.addTask("", 10).add(5, 0);
+    dashboard.render(0);
+    assertThat(row(1), startsWith(" [█████████"));
+  }
+
+  @Test
+  public void testHugeTotal() {
+    // Larger than a long can hold when multiplied by the resolution.
+    ProgressDashboard.Task task = dashboard.addTask("big", 20_000_000_000_000L);
+    task.add(10_000_000_000_000L, 0);
+    dashboard.render(0);
+    assertThat(row(1), startsWith("big [██████████ "));
+  }
+}